@@ -0,0 +1,99 @@
+package com.aiplms.auth.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files (-rf json) benchmark by benchmark.
+ *
+ * Usage: mvn -Pjmh test-compile exec:exec@jmh-diff -Djmh.baseline=old.json -Djmh.result=new.json
+ *
+ * Prints throughput and allocated bytes/op (from '-prof gc') for both runs and the relative change.
+ * Benchmarks present in only one of the files are listed with '-' on the missing side.
+ */
+public final class BenchmarkDiff {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    private BenchmarkDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BenchmarkDiff <baseline.json> <current.json>");
+            System.exit(2);
+        }
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        Map<String, Boolean> names = new TreeMap<>();
+        baseline.keySet().forEach(k -> names.put(k, true));
+        current.keySet().forEach(k -> names.put(k, true));
+
+        System.out.printf("%-70s %14s %14s %8s   %10s %10s %8s%n",
+                "Benchmark", "base", "current", "delta", "B/op base", "B/op cur", "delta");
+        for (String name : names.keySet()) {
+            Result b = baseline.get(name);
+            Result c = current.get(name);
+            System.out.printf("%-70s %14s %14s %8s   %10s %10s %8s%n",
+                    name,
+                    b == null ? "-" : format(b.score) + " " + b.unit,
+                    c == null ? "-" : format(c.score) + " " + c.unit,
+                    delta(b == null ? null : b.score, c == null ? null : c.score),
+                    b == null || b.allocPerOp == null ? "-" : format(b.allocPerOp),
+                    c == null || c.allocPerOp == null ? "-" : format(c.allocPerOp),
+                    delta(b == null ? null : b.allocPerOp, c == null ? null : c.allocPerOp));
+        }
+    }
+
+    private static Map<String, Result> read(File file) throws IOException {
+        JsonNode root = new ObjectMapper().readTree(file);
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : root) {
+            StringBuilder name = new StringBuilder(shortName(run.path("benchmark").asText()));
+            JsonNode params = run.path("params");
+            if (params.isObject()) {
+                name.append(' ');
+                Iterator<Map.Entry<String, JsonNode>> it = params.fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> p = it.next();
+                    name.append(p.getKey()).append('=').append(p.getValue().asText());
+                    if (it.hasNext()) name.append(',');
+                }
+            }
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode alloc = run.path("secondaryMetrics").path(ALLOC_METRIC);
+            results.put(name.toString(), new Result(
+                    primary.path("score").asDouble(),
+                    primary.path("scoreUnit").asText(),
+                    alloc.isMissingNode() ? null : alloc.path("score").asDouble()));
+        }
+        return results;
+    }
+
+    private static String shortName(String benchmark) {
+        String prefix = BenchmarkDiff.class.getPackageName() + ".";
+        return benchmark.startsWith(prefix) ? benchmark.substring(prefix.length()) : benchmark;
+    }
+
+    private static String format(double v) {
+        return v >= 100 ? String.format("%.0f", v) : String.format("%.3f", v);
+    }
+
+    private static String delta(Double base, Double current) {
+        if (base == null || current == null || base == 0) {
+            return "-";
+        }
+        return String.format("%+.1f%%", (current - base) / base * 100);
+    }
+
+    private record Result(double score, String unit, Double allocPerOp) {
+    }
+}
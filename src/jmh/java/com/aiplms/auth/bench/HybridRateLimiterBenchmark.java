@@ -0,0 +1,124 @@
+package com.aiplms.auth.bench;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.service.HybridRateLimitService;
+import com.aiplms.auth.service.RedisCircuitBreaker;
+import com.aiplms.auth.service.RedisTokenBucketService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis load of the approximate DEFAULT_AUTH rule: strict (one EVALSHA per request) vs hybrid (in-memory
+ * counting, synced once per second as the scheduler does in the service). Needs a local Redis
+ * (default localhost:6379, '-p redisHost=...').
+ *
+ * Besides throughput, each iteration prints the Redis commands processed per request (INFO stats
+ * total_commands_processed delta / requests), which is the number to compare: ~1 for strict, and for hybrid
+ * ~2 per active client key per sync interval regardless of request rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class HybridRateLimiterBenchmark {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+    private static final long LIMIT = 1_000_000_000L;
+
+    @Param({"localhost"})
+    public String redisHost;
+
+    @Param({"6379"})
+    public int redisPort;
+
+    @Param({"strict", "hybrid"})
+    public String mode;
+
+    @Param({"1000"})
+    public int clients;
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private HybridRateLimitService limiter;
+    private ScheduledExecutorService syncer;
+
+    private final LongAdder requests = new LongAdder();
+    private long commandsBefore;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(redisHost, redisPort));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+
+        AuthProperties properties = new AuthProperties();
+        properties.getRateLimit().setHybridEnabled("hybrid".equals(mode));
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(properties, new SimpleMeterRegistry());
+        limiter = new HybridRateLimitService(redisTemplate, new RedisTokenBucketService(redisTemplate, circuitBreaker),
+                properties, circuitBreaker);
+
+        syncer = Executors.newSingleThreadScheduledExecutor();
+        syncer.scheduleWithFixedDelay(limiter::sync, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        requests.reset();
+        commandsBefore = commandsProcessed();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        long commands = commandsProcessed() - commandsBefore;
+        System.out.printf("%n  redis commands/request: %.4f (%d commands, %d requests)%n",
+                (double) commands / Math.max(1, requests.sum()), commands, requests.sum());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        syncer.shutdownNow();
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public long defaultRule() {
+        requests.increment();
+        String key = "bench:" + ThreadLocalRandom.current().nextInt(clients) + ":GET:/api/v1/auth/verify-email";
+        return limiter.tryConsume(key, LIMIT, WINDOW);
+    }
+
+    private long commandsProcessed() {
+        Properties stats = redisTemplate.execute((RedisCallback<Properties>) c -> c.serverCommands().info("stats"));
+        return stats == null ? 0 : Long.parseLong(stats.getProperty("total_commands_processed", "0"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.aiplms.auth.bench;
+
+import com.aiplms.auth.dto.v1.ApiResponse;
+import com.aiplms.auth.dto.v1.TokenResponseDto;
+import com.aiplms.auth.util.TokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of the /refresh response body (ApiResponse wrapping TokenResponseDto).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ApiResponse<TokenResponseDto> response;
+
+    @Setup
+    public void setup() {
+        // same modules Spring Boot registers on its ObjectMapper
+        objectMapper = JsonMapper.builder().findAndAddModules().build();
+        TokenResponseDto tokens = new TokenResponseDto(
+                "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9." + TokenUtil.generateOpaqueToken() + "."
+                        + TokenUtil.generateOpaqueToken().substring(0, 43),
+                "2025-01-01T00:15:00Z",
+                TokenUtil.generateOpaqueToken(),
+                "2025-01-31T00:00:00Z");
+        response = new ApiResponse<>("AUTH_013", "Token refreshed", tokens);
+    }
+
+    @Benchmark
+    public byte[] tokenResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,87 @@
+package com.aiplms.auth.bench;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.entity.Role;
+import com.aiplms.auth.entity.User;
+import com.aiplms.auth.security.JwtCodec;
+import com.aiplms.auth.security.JwtKeyManager;
+import com.aiplms.auth.security.JwtService;
+import com.aiplms.auth.security.ValidatedToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nimbus vs JwtCodec for issuing and validating access tokens.
+ *
+ * Run with '-prof gc' to compare allocation (gc.alloc.rate.norm = bytes per op).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtCodecBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fastCodec;
+
+    @Param({"HS256", "ES256"})
+    public String algorithm;
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setup() {
+        AuthProperties props = new AuthProperties();
+        props.getJwt().setAlgorithm(algorithm);
+        props.getJwt().setSecret("benchmark-secret-benchmark-secret-benchmark-secret");
+        props.getJwt().setFastCodecEnabled(fastCodec);
+
+        JwtKeyManager keyManager = new JwtKeyManager(props);
+        jwtService = new JwtService(keyManager, props, new JwtCodec(keyManager));
+
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("benchmark.user");
+        user.setEmail("benchmark.user@example.com");
+        user.setRoles(Set.of(role));
+
+        token = jwtService.createAccessToken(user).getToken();
+    }
+
+    @Benchmark
+    public String createAccessToken() {
+        return jwtService.createAccessToken(user).getToken();
+    }
+
+    @Benchmark
+    public ValidatedToken validate() {
+        return jwtService.validate(token);
+    }
+
+    /**
+     * Generic Nimbus path (not affected by fastCodec; kept as the baseline for foreign tokens).
+     */
+    @Benchmark
+    public JwtService.JwtClaims parseAndValidate() {
+        return jwtService.parseAndValidate(token);
+    }
+}
@@ -0,0 +1,52 @@
+package com.aiplms.auth.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt cost on register (encode) and login (matches).
+ *
+ * Strength 10 is what PasswordConfig uses; pass '-p strength=12' etc. to size a change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    @Param({"10"})
+    public int strength;
+
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        encoder = new BCryptPasswordEncoder(strength);
+        hash = encoder.encode("correct horse battery staple");
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode("correct horse battery staple");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("correct horse battery staple", hash);
+    }
+}
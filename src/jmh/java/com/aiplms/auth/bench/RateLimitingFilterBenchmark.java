@@ -0,0 +1,99 @@
+package com.aiplms.auth.bench;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.security.RateLimitKeyResolver;
+import com.aiplms.auth.security.RateLimitRuleRegistry;
+import com.aiplms.auth.security.RateLimitingFilter;
+import com.aiplms.auth.service.HybridRateLimitService;
+import com.aiplms.auth.service.LocalRateLimiter;
+import com.aiplms.auth.service.RedisTokenBucketService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of RateLimitingFilter itself (rule matching, client key resolution incl. trusted-proxy
+ * X-Forwarded-For handling, quota headers, metrics) with the default auth.rate-limit rules.
+ *
+ * The bucket service is stubbed so Redis latency is excluded; it only records the key/limit it was handed.
+ * Hybrid limiting is switched off so the approximate default rule reaches the stub too (see
+ * HybridRateLimiterBenchmark for that path).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitingFilterBenchmark {
+
+    private RateLimitingFilter filter;
+    private MockHttpServletRequest loginRequest;
+    private MockHttpServletRequest defaultRuleRequest;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+    private StubBucketService bucketService;
+
+    @Setup
+    public void setup() {
+        bucketService = new StubBucketService();
+        AuthProperties properties = new AuthProperties();
+        properties.getRateLimit().setHybridEnabled(false);
+        filter = new RateLimitingFilter(bucketService,
+                new HybridRateLimitService(null, bucketService, properties, null), new LocalRateLimiter(properties),
+                new RateLimitRuleRegistry(properties, new StandardEnvironment()), new RateLimitKeyResolver(null, null),
+                new SimpleMeterRegistry());
+
+        loginRequest = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        loginRequest.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+        loginRequest.setRemoteAddr("10.0.0.1");
+
+        defaultRuleRequest = new MockHttpServletRequest("GET", "/api/v1/auth/verify-email");
+        defaultRuleRequest.setRemoteAddr("198.51.100.23");
+
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> { };
+    }
+
+    @Benchmark
+    public void loginRule(Blackhole bh) throws Exception {
+        filter.doFilter(loginRequest, response, chain);
+        bh.consume(bucketService.lastKey);
+    }
+
+    @Benchmark
+    public void defaultRule(Blackhole bh) throws Exception {
+        filter.doFilter(defaultRuleRequest, response, chain);
+        bh.consume(bucketService.lastKey);
+    }
+
+    static final class StubBucketService extends RedisTokenBucketService {
+        String lastKey;
+
+        StubBucketService() {
+            super(null, null);
+        }
+
+        @Override
+        public Decision consume(String key, long limit, Duration window) {
+            lastKey = key;
+            return new Decision(true, limit - 1, Duration.ZERO, window);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.aiplms.auth.bench;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.service.RedisCircuitBreaker;
+import com.aiplms.auth.service.RedisTokenBucketService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of one rate limit decision against a real Redis (default localhost:6379, '-p redisHost=...').
+ *
+ * - gcra: RedisTokenBucketService (one EVALSHA)
+ * - incrThenExpire: the previous fixed window, INCR then PEXPIRE on a new key (two round trips for new keys)
+ *
+ * keys=1 measures one hot key; larger values spread requests so most calls hit a new or expired key, which is
+ * where the old implementation paid its second round trip. Limits are high enough that no call is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RedisRateLimiterBenchmark {
+
+    private static final Duration WINDOW = Duration.ofMillis(200);
+    private static final long LIMIT = 1_000_000;
+
+    @Param({"localhost"})
+    public String redisHost;
+
+    @Param({"6379"})
+    public int redisPort;
+
+    @Param({"1", "100000"})
+    public int keys;
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private RedisTokenBucketService limiter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(redisHost, redisPort));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+        limiter = new RedisTokenBucketService(redisTemplate,
+                new RedisCircuitBreaker(new AuthProperties(), new SimpleMeterRegistry()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public long gcra() {
+        return limiter.tryConsume(nextKey("gcra:"), LIMIT, WINDOW);
+    }
+
+    @Benchmark
+    public long incrThenExpire() {
+        byte[] rawKey = ("rl:" + nextKey("fixed:")).getBytes(StandardCharsets.UTF_8);
+        Long current = redisTemplate.execute(connection -> {
+            Long val = connection.stringCommands().incr(rawKey);
+            if (val != null && val == 1L) {
+                connection.keyCommands().pExpire(rawKey, WINDOW.toMillis());
+            }
+            return val;
+        }, true);
+        return current == null || current > LIMIT ? -1 : LIMIT - current;
+    }
+
+    private String nextKey(String prefix) {
+        return prefix + (keys == 1 ? 0 : ThreadLocalRandom.current().nextInt(keys));
+    }
+}
@@ -0,0 +1,49 @@
+package com.aiplms.auth.bench;
+
+import com.aiplms.auth.util.TokenUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opaque refresh/reset token generation and hashing (called on every login, refresh and reset).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenUtilBenchmark {
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        token = TokenUtil.generateOpaqueToken();
+    }
+
+    @Benchmark
+    public String generateOpaqueToken() {
+        return TokenUtil.generateOpaqueToken();
+    }
+
+    @Benchmark
+    public byte[] sha256() {
+        return TokenUtil.sha256(token);
+    }
+
+    @Benchmark
+    public String sha256Hex() {
+        return TokenUtil.sha256Hex(token);
+    }
+}
@@ -1,19 +1,46 @@
 package com.aiplms.auth.config;
 
+import com.aiplms.auth.security.BoundedPasswordEncoder;
+import com.aiplms.auth.security.PasswordEncoderCalibration;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Exposes a PasswordEncoder bean for the application.
+ *
+ * Hashing runs on its own bounded pool (see {@link BoundedPasswordEncoder}), not on servlet threads.
+ * The algorithm is configurable (bcrypt/argon2/pbkdf2) and its cost is calibrated at startup.
  */
 @Configuration
 public class PasswordConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        // default strength 10; make configurable later
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(AuthProperties authProperties, MeterRegistry meterRegistry) {
+        AuthProperties.Password cfg = authProperties.getPassword();
+        // algorithm + cost calibrated to this node at startup (see PasswordEncoderCalibration)
+        return new BoundedPasswordEncoder(PasswordEncoderCalibration.create(cfg), passwordHashingExecutor(cfg),
+                cfg.getHashingMaxWait(), meterRegistry);
+    }
+
+    // not a bean on purpose: an Executor bean would switch off Boot's default applicationTaskExecutor
+    private static ThreadPoolExecutor passwordHashingExecutor(AuthProperties.Password cfg) {
+        int threads = cfg.getHashingThreads() > 0
+                ? cfg.getHashingThreads()
+                : Runtime.getRuntime().availableProcessors();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hash-");
+        threadFactory.setDaemon(true);
+
+        // fixed size, bounded queue, AbortPolicy: a full queue is rejected immediately (-> 503)
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cfg.getHashingQueueCapacity())),
+                threadFactory, new ThreadPoolExecutor.AbortPolicy());
     }
 }
@@ -1,12 +1,17 @@
 package com.aiplms.auth.config;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.TimeoutOptions;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 
 @Configuration
@@ -18,14 +23,38 @@ public class RedisConfig {
     @Value("${spring.redis.port:6379}")
     private int redisPort;
 
+    /**
+     * Commands fail after auth.redis.command-timeout, and fail at once while the connection is down instead of
+     * queueing until it's back, so a Redis outage costs callers milliseconds (see RedisCircuitBreaker).
+     */
     @Bean
-    public RedisConnectionFactory redisConnectionFactory() {
+    public RedisConnectionFactory redisConnectionFactory(AuthProperties authProperties) {
+        AuthProperties.Redis redis = authProperties.getRedis();
         RedisStandaloneConfiguration cfg = new RedisStandaloneConfiguration(redisHost, redisPort);
-        return new LettuceConnectionFactory(cfg);
+        ClientOptions clientOptions = ClientOptions.builder()
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .socketOptions(SocketOptions.builder().connectTimeout(redis.getConnectTimeout()).build())
+                .timeoutOptions(TimeoutOptions.enabled(redis.getCommandTimeout()))
+                .build();
+        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
+                .commandTimeout(redis.getCommandTimeout())
+                .clientOptions(clientOptions)
+                .build();
+        return new LettuceConnectionFactory(cfg, clientConfig);
     }
 
     @Bean
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
         return new StringRedisTemplate(connectionFactory);
     }
+
+    /**
+     * Shared pub/sub container; services register their own channel listeners on it.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
@@ -0,0 +1,37 @@
+package com.aiplms.auth.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Two schedulers so long-running jobs can't delay the frequent ones:
+ * - taskScheduler: default for @Scheduled. Short periodic jobs (rate limit sync, login attempt write-behind,
+ *   mail outbox, blacklist resync, rule reload); sized by spring.task.scheduling.pool.size.
+ * - maintenanceScheduler: purge and partition maintenance, which pause between chunks and may run for
+ *   auth.purge.max-run-time. Selected with {@code @Scheduled(scheduler = MAINTENANCE_SCHEDULER)}.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    public static final String MAINTENANCE_SCHEDULER = "maintenanceScheduler";
+
+    /**
+     * Declaring any TaskScheduler switches off Boot's default one, so it is declared here as well; the builder
+     * still applies spring.task.scheduling.*.
+     */
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean(name = MAINTENANCE_SCHEDULER)
+    public ThreadPoolTaskScheduler maintenanceScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        // purge and partition maintenance take turns; neither benefits from running alongside the other
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("maintenance-");
+        return scheduler;
+    }
+}
@@ -4,10 +4,17 @@ import com.aiplms.auth.repository.UserRepository;
 import com.aiplms.auth.security.JwtAuthenticationEntryPoint;
 import com.aiplms.auth.security.JwtAuthenticationFilter;
 import com.aiplms.auth.security.JwtService;
+import com.aiplms.auth.security.RateLimitKeyResolver;
+import com.aiplms.auth.security.RateLimitRuleRegistry;
 import com.aiplms.auth.security.RateLimitingFilter;
+import com.aiplms.auth.security.VerifiedTokenCache;
+import com.aiplms.auth.service.HybridRateLimitService;
+import com.aiplms.auth.service.LocalRateLimiter;
 import com.aiplms.auth.service.RedisTokenBucketService;
 import com.aiplms.auth.service.TokenBlacklistService;
+import com.aiplms.auth.service.UserRevocationService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,20 +30,29 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final TokenBlacklistService tokenBlacklistService;
+    private final UserRevocationService userRevocationService;
     private final RedisTokenBucketService redisTokenBucketService;
+    private final HybridRateLimitService hybridRateLimitService;
+    private final LocalRateLimiter localRateLimiter;
+    private final RateLimitRuleRegistry rateLimitRuleRegistry;
+    private final RateLimitKeyResolver rateLimitKeyResolver;
+    private final MeterRegistry meterRegistry;
 
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtService, userRepository, tokenBlacklistService);
+        return new JwtAuthenticationFilter(jwtService, verifiedTokenCache, userRepository, tokenBlacklistService,
+                userRevocationService);
     }
 
     @Bean
     public RateLimitingFilter rateLimitingFilter() {
-        return new RateLimitingFilter(redisTokenBucketService);
+        return new RateLimitingFilter(redisTokenBucketService, hybridRateLimitService, localRateLimiter,
+                rateLimitRuleRegistry, rateLimitKeyResolver, meterRegistry);
     }
 
     @Bean
@@ -8,13 +8,14 @@ import com.aiplms.auth.exception.Exceptions;
 import com.aiplms.auth.mapper.UserMapper;
 import com.aiplms.auth.repository.UserRepository;
 import com.aiplms.auth.security.JwtService;
+import com.aiplms.auth.security.ValidatedToken;
 import com.aiplms.auth.service.*;
-import com.aiplms.auth.util.TokenUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,6 +23,7 @@ import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/auth")
@@ -66,10 +68,7 @@ public class AuthController {
         String principalName = auth.getName();
 
         // Resolve user by username first, then by email
-        var userOpt = userRepository.findByUsernameIgnoreCase(principalName);
-        if (userOpt.isEmpty()) {
-            userOpt = userRepository.findByEmailIgnoreCase(principalName);
-        }
+        var userOpt = userRepository.findByUsernameOrEmail(principalName);
 
         var user = userOpt.orElseThrow(() -> Exceptions.unauthorized("Authenticated user not found"));
 
@@ -91,44 +90,17 @@ public class AuthController {
             throw Exceptions.badRequest("Missing refresh token");
         }
 
-        // compute hash using TokenUtil (existing util)
-        String hash = TokenUtil.sha256Hex(incoming);
-
-        // find persisted refresh token by hash
-        var opt = refreshTokenService.findByHash(hash);
-        if (opt.isEmpty()) {
-            // token not found -> invalid or reuse
-            throw Exceptions.unauthorized("Invalid refresh token");
-        }
-
-        RefreshToken stored = opt.get();
-
-        // check revoked / expired
-        if (stored.isRevoked()) {
-            // possible reuse / replay — return unauthorized
-            // TODO: log details for audit; optionally revoke all tokens for user
-            throw Exceptions.unauthorized("Refresh token has been revoked");
-        }
-
-        if (stored.getExpiresAt().isBefore(Instant.now())) {
-            // expired
-            throw Exceptions.unauthorized("Refresh token expired");
-        }
-
-        // rotation: revoke current token
-        refreshTokenService.revoke(stored);
-
-        // create new refresh token (expiry using authProperties or a TTL; AuthServiceImpl uses authProperties)
+        // revoke + issue successor atomically; rejects unknown, revoked (replayed) and expired tokens
         Instant newExpiry = Instant.now().plus(authProperties.getRefreshTokenTtl());
-        var createResult = refreshTokenService.createForUser(stored.getUser(), newExpiry);
+        var rotated = refreshTokenService.rotate(incoming, newExpiry);
 
         // create new access token
-        JwtService.AccessToken accessToken = jwtService.createAccessToken(stored.getUser());
+        JwtService.AccessToken accessToken = jwtService.createAccessToken(rotated.getUser());
 
         TokenResponseDto resp = new TokenResponseDto(
                 accessToken.getToken(),
                 accessToken.getExpiresAtIso(),
-                createResult.getPlainToken(),
+                rotated.getPlainToken(),
                 newExpiry.toString()
         );
 
@@ -146,8 +118,13 @@ public class AuthController {
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             String accessToken = authorizationHeader.substring(7).trim();
             try {
-                // delegate to blacklist service
-                tokenBlacklistService.blacklistAccessToken(accessToken);
+                // JwtAuthenticationFilter already validated the token on this request; reuse that result
+                Object validated = httpRequest.getAttribute(ValidatedToken.REQUEST_ATTRIBUTE);
+                if (validated instanceof ValidatedToken vt) {
+                    tokenBlacklistService.blacklistAccessToken(vt);
+                } else {
+                    tokenBlacklistService.blacklistAccessToken(accessToken);
+                }
             } catch (Exception ex) {
                 // do not fail logout if blacklist fails; log and continue (but surface mild error if you want)
                 log.warn("Failed to blacklist access token during logout", ex);
@@ -157,14 +134,13 @@ public class AuthController {
         // 2) Revoke refresh token if provided
         if (request != null && request.getRefreshToken() != null && !request.getRefreshToken().isBlank()) {
             String providedRefresh = request.getRefreshToken();
-            String hash = TokenUtil.sha256Hex(providedRefresh);
-            java.util.Optional<RefreshToken> refreshOpt = refreshTokenService.findByHash(hash);
+            java.util.Optional<RefreshToken> refreshOpt = refreshTokenService.findByToken(providedRefresh);
             if (refreshOpt.isPresent()) {
                 // revoke via refresh token service
                 refreshTokenService.revoke(refreshOpt.get());
             } else {
                 // no-op if not found
-                log.debug("Logout requested for unknown refresh token (hash={})", hash);
+                log.debug("Logout requested for unknown refresh token");
             }
         }
 
@@ -175,6 +151,51 @@ public class AuthController {
         return ResponseEntity.ok(body);
     }
 
+    /**
+     * Log the current user out everywhere: every refresh token and every access token issued so far.
+     */
+    @PostMapping("/sessions/revoke-all")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> revokeAllSessions(HttpServletRequest httpRequest) {
+        ValidatedToken token = currentToken(httpRequest);
+        return revokeAllSessionsFor(token.getUserId());
+    }
+
+    /**
+     * Incident response: revoke every session of another user. Requires ROLE_ADMIN.
+     */
+    @PostMapping("/users/{userId}/sessions/revoke-all")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> revokeAllSessionsForUser(
+            @PathVariable("userId") UUID userId,
+            HttpServletRequest httpRequest
+    ) {
+        ValidatedToken token = currentToken(httpRequest);
+        boolean admin = SecurityContextHolder.getContext().getAuthentication().getAuthorities().stream()
+                .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        if (!admin) {
+            throw Exceptions.forbidden("ROLE_ADMIN required");
+        }
+        log.info("Admin {} revoking all sessions of user {}", token.getUserId(), userId);
+        return revokeAllSessionsFor(userId);
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Object>>> revokeAllSessionsFor(UUID userId) {
+        int revoked = authService.revokeAllSessions(userId);
+        Map<String, Object> data = Map.of("userId", userId, "revokedRefreshTokens", revoked);
+        return ResponseEntity.ok(new ApiResponse<>("AUTH_018", "All sessions revoked", data));
+    }
+
+    private static ValidatedToken currentToken(HttpServletRequest httpRequest) {
+        // the authentication is only set once the token also passed the blacklist/revocation checks
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        Object validated = httpRequest.getAttribute(ValidatedToken.REQUEST_ATTRIBUTE);
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)
+                && validated instanceof ValidatedToken vt
+                && vt.getUserId() != null) {
+            return vt;
+        }
+        throw Exceptions.unauthorized("Authentication required");
+    }
+
     @GetMapping("/verify-email")
     public ResponseEntity<?> verifyEmail(@RequestParam("token") String token, HttpServletRequest request) {
         boolean ok = emailVerificationService.verifyToken(token);
@@ -0,0 +1,49 @@
+package com.aiplms.auth.controller;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.security.JwtKeyManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Publishes the public signing keys so resource servers can verify access tokens locally.
+ *
+ * The document is serialized once by {@link JwtKeyManager}; clients revalidate with If-None-Match and
+ * get a 304 without a body until the key set changes (i.e. a redeploy with rotated keys).
+ * Not wrapped in ApiResponse: JWKS clients expect the raw RFC 7517 document.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyManager keyManager;
+    private final AuthProperties authProperties;
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> jwks(
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        CacheControl cacheControl = CacheControl.maxAge(authProperties.getJwt().getJwksCacheDuration()).cachePublic();
+        String etag = keyManager.getJwksEtag();
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(keyManager.getJwksJson());
+    }
+}
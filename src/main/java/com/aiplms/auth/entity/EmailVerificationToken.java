@@ -1,5 +1,6 @@
 package com.aiplms.auth.entity;
 
+import com.aiplms.auth.util.TokenUtil;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.GenericGenerator;
@@ -9,7 +10,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "email_verification_tokens", indexes = {
-        @Index(columnList = "token_hash"),
+        @Index(columnList = "token_hash", unique = true),
         @Index(columnList = "user_id")
 })
 @Getter
@@ -33,10 +34,10 @@ public class EmailVerificationToken {
     private UUID id;
 
     /**
-     * SHA256 hash of the token (do not store plain token)
+     * Raw SHA-256 (32 bytes) of the token (do not store plain token)
      */
-    @Column(name = "token_hash", nullable = false, length = 128)
-    private String tokenHash;
+    @Column(name = "token_hash", nullable = false, length = TokenUtil.HASH_BYTES)
+    private byte[] tokenHash;
 
     /**
      * actual token expiry moment (UTC)
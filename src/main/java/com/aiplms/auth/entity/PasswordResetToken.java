@@ -1,5 +1,6 @@
 package com.aiplms.auth.entity;
 
+import com.aiplms.auth.util.TokenUtil;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.GenericGenerator;
@@ -9,7 +10,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "password_reset_tokens", indexes = {
-        @Index(columnList = "token_hash"),
+        @Index(columnList = "token_hash", unique = true),
         @Index(columnList = "user_id")
 })
 @Getter
@@ -32,8 +33,8 @@ public class PasswordResetToken {
     @Column(columnDefinition = "uuid", updatable = false)
     private UUID id;
 
-    @Column(name = "token_hash", nullable = false, length = 128)
-    private String tokenHash;
+    @Column(name = "token_hash", nullable = false, length = TokenUtil.HASH_BYTES)
+    private byte[] tokenHash;
 
     @Column(name = "expires_at", nullable = false)
     private Instant expiresAt;
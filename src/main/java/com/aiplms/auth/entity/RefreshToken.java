@@ -1,5 +1,6 @@
 package com.aiplms.auth.entity;
 
+import com.aiplms.auth.util.TokenUtil;
 import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
@@ -22,15 +23,27 @@ public class RefreshToken {
     @Column(name = "id", nullable = false, updatable = false)
     private UUID id;
 
+    /**
+     * Assigned at persist time (as in User) so save() sees a new entity and inserts directly; a pre-set id
+     * makes Spring Data merge(), which selects the row first.
+     */
+    @PrePersist
+    public void prePersist() {
+        if (this.id == null) {
+            this.id = UUID.randomUUID();
+        }
+    }
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
     /**
-     * SHA-256 hex of the opaque refresh token. We store only the hash.
+     * Raw SHA-256 (32 bytes) of the token's verifier part (of the whole token for legacy opaque tokens).
+     * We store only the hash.
      */
-    @Column(name = "token_hash", nullable = false, length = 128)
-    private String tokenHash;
+    @Column(name = "token_hash", nullable = false, length = TokenUtil.HASH_BYTES)
+    private byte[] tokenHash;
 
     @Column(name = "revoked", nullable = false)
     private boolean revoked = false;
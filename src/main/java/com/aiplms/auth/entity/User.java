@@ -69,6 +69,13 @@ public class User {
     @Column(name = "locked_until")
     private Instant lockedUntil;
 
+    /**
+     * Copied into access tokens as the 'sv' claim. Incremented on password reset (UserRevocationService
+     * .bumpSecurityVersion) to invalidate outstanding access tokens without a per-request DB lookup.
+     */
+    @Column(name = "security_version", nullable = false)
+    private int securityVersion;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
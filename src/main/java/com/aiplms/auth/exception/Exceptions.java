@@ -21,6 +21,10 @@ public final class Exceptions {
         return new BaseException("AUTH_ERR_INTERNAL", HttpStatus.INTERNAL_SERVER_ERROR, detail);
     }
 
+    public static BaseException forbidden(String detail) {
+        return new BaseException("AUTH_ERR_FORBIDDEN", HttpStatus.FORBIDDEN, detail);
+    }
+
     /**
      * Account locked due to repeated failed login attempts.
      */
@@ -28,5 +32,12 @@ public final class Exceptions {
         return new BaseException("AUTH_ERR_ACCOUNT_LOCKED", HttpStatus.FORBIDDEN, detail);
     }
 
+    /**
+     * Server is shedding load (e.g. password hashing capacity exhausted); the client should retry shortly.
+     */
+    public static BaseException serviceBusy(String detail) {
+        return new BaseException("AUTH_ERR_BUSY", HttpStatus.SERVICE_UNAVAILABLE, detail);
+    }
+
 }
 
@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -49,7 +50,11 @@ public class GlobalExceptionHandler {
                 .supportId(supportId)
                 .build();
 
-        return ResponseEntity.status(ex.getHttpStatus()).body(errorResponse);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(ex.getHttpStatus());
+        if (ex.getHttpStatus() == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return response.body(errorResponse);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -19,6 +19,7 @@ public interface UserMapper {
     @Mapping(target = "enabled", constant = "true")
     @Mapping(target = "failedLoginCount", constant = "0")
     @Mapping(target = "lockedUntil", ignore = true)
+    @Mapping(target = "securityVersion", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     User toUser(RegisterRequestDto dto);
@@ -0,0 +1,280 @@
+package com.aiplms.auth.outbox;
+
+import com.aiplms.auth.service.EmailService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers emails queued in the outbox by {@link EmailService}.
+ *
+ * Each poll claims a batch in one statement (FOR UPDATE SKIP LOCKED, then available_at is pushed out by the
+ * claim lease), so several nodes can run the worker without sending the same email twice and no database
+ * connection or transaction is held while talking to SMTP. The batch is split into outbox.mail.concurrency
+ * chunks; each chunk goes out over a single SMTP connection via JavaMailSender's batch send. Failed emails
+ * are retried with exponential backoff until outbox.mail.max-retries, then closed with failed = true (kept for
+ * inspection until their partition is dropped). Delivery is at-least-once: a node that
+ * dies mid-send leaves its batch to be claimed again after the lease. Full batches are sent back to back, at
+ * most outbox.mail.max-batches-per-poll per poll, so a backlog never holds the scheduler for long.
+ *
+ * Delivered rows keep only recipient and subject; the body (which carries one-time links) is dropped.
+ */
+@Service
+public class MailOutboxWorker implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MailOutboxWorker.class);
+
+    private static final String CLAIM_SQL = """
+            UPDATE outbox SET available_at = now() + make_interval(secs => ?)
+            WHERE id IN (
+                SELECT id FROM outbox
+                WHERE processed = false AND type = ? AND retry_count < ? AND available_at <= now()
+                ORDER BY available_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, occurred_at, payload::text, retry_count
+            """;
+
+    // occurred_at is the partition key: with it the update goes straight to one partition
+    private static final String DELIVERED_SQL = "UPDATE outbox SET processed = true, processed_at = now(), "
+            + "payload = ?::jsonb WHERE id = ? AND occurred_at = ?";
+
+    private static final String RETRY_SQL =
+            "UPDATE outbox SET retry_count = retry_count + 1, available_at = now() + make_interval(secs => ?) "
+                    + "WHERE id = ? AND occurred_at = ?";
+
+    // out of retries: closed like a delivered row (so it expires with its partition), flagged failed
+    private static final String DEAD_LETTER_SQL = "UPDATE outbox SET retry_count = retry_count + 1, processed = true, "
+            + "processed_at = now(), failed = true WHERE id = ? AND occurred_at = ?";
+
+    private static final String CLOSE_EXHAUSTED_SQL = "UPDATE outbox SET processed = true, processed_at = now(), "
+            + "failed = true WHERE processed = false AND type = ? AND retry_count >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JavaMailSender mailSender;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties.Mail properties;
+    private final ExecutorService senders;
+
+    public MailOutboxWorker(JdbcTemplate jdbcTemplate,
+                            JavaMailSender mailSender,
+                            ObjectMapper objectMapper,
+                            OutboxProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mailSender = mailSender;
+        this.objectMapper = objectMapper;
+        this.properties = properties.getMail();
+        AtomicInteger seq = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, this.properties.getConcurrency()), r -> {
+            Thread t = new Thread(r, "mail-sender-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.mail.poll-interval-ms:1000}")
+    public void pollAndSend() {
+        try {
+            int maxBatches = Math.max(1, properties.getMaxBatchesPerPoll());
+            int batches = 0;
+            int sent;
+            do {
+                sent = processBatch();
+            } while (sent == properties.getBatchSize() && ++batches < maxBatches);
+        } catch (Exception ex) {
+            log.error("Unexpected error in MailOutboxWorker.pollAndSend", ex);
+        }
+    }
+
+    /**
+     * Close emails that are already out of retries, e.g. after outbox.mail.max-retries was lowered; the claim
+     * query no longer picks them up, so they would otherwise stay pending.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void closeExhausted() {
+        try {
+            int closed = jdbcTemplate.update(CLOSE_EXHAUSTED_SQL, EmailService.OUTBOX_EVENT_TYPE,
+                    properties.getMaxRetries());
+            if (closed > 0) {
+                log.warn("MailOutboxWorker: closed {} email(s) already past max retries as failed", closed);
+            }
+        } catch (Exception ex) {
+            log.error("MailOutboxWorker: closing exhausted emails failed: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Claim and deliver one batch.
+     *
+     * @return number of emails claimed
+     */
+    int processBatch() {
+        List<QueuedMail> batch = jdbcTemplate.query(CLAIM_SQL,
+                (rs, i) -> new QueuedMail(rs.getObject(1, UUID.class), rs.getTimestamp(2), rs.getString(3), rs.getInt(4)),
+                properties.getClaimLease().toSeconds(),
+                EmailService.OUTBOX_EVENT_TYPE,
+                properties.getMaxRetries(),
+                properties.getBatchSize());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        int chunks = Math.min(Math.max(1, properties.getConcurrency()), batch.size());
+        int chunkSize = (batch.size() + chunks - 1) / chunks;
+        List<Future<?>> futures = new ArrayList<>(chunks);
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            List<QueuedMail> chunk = batch.subList(from, Math.min(batch.size(), from + chunkSize));
+            futures.add(senders.submit(() -> sendChunk(chunk)));
+        }
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception ex) {
+                // rows of a crashed chunk stay claimed and are retried once the lease expires
+                log.error("MailOutboxWorker: chunk failed", ex);
+            }
+        }
+        return batch.size();
+    }
+
+    private void sendChunk(List<QueuedMail> chunk) {
+        List<QueuedMail> sendable = new ArrayList<>(chunk.size());
+        List<SimpleMailMessage> messages = new ArrayList<>(chunk.size());
+        List<QueuedMail> failed = new ArrayList<>();
+        for (QueuedMail mail : chunk) {
+            try {
+                mail.message = toMessage(objectMapper.readTree(mail.payload));
+                sendable.add(mail);
+                messages.add(mail.message);
+            } catch (Exception ex) {
+                log.error("MailOutboxWorker: unreadable email payload id={}: {}", mail.id, ex.getMessage());
+                failed.add(mail);
+            }
+        }
+
+        List<QueuedMail> delivered = sendable;
+        if (!messages.isEmpty()) {
+            try {
+                // one SMTP connection for the whole chunk
+                mailSender.send(messages.toArray(new SimpleMailMessage[0]));
+            } catch (MailSendException ex) {
+                Map<Object, Exception> failures = ex.getFailedMessages();
+                delivered = new ArrayList<>(sendable.size());
+                for (QueuedMail mail : sendable) {
+                    // no per-message detail means the connection itself failed: retry everything
+                    if (failures.isEmpty() || failures.containsKey(mail.message)) {
+                        failed.add(mail);
+                    } else {
+                        delivered.add(mail);
+                    }
+                }
+                log.warn("MailOutboxWorker: {} of {} email(s) failed: {}", failed.size(), chunk.size(), ex.getMessage());
+            } catch (Exception ex) {
+                delivered = List.of();
+                failed.addAll(sendable);
+                log.warn("MailOutboxWorker: sending {} email(s) failed: {}", sendable.size(), ex.getMessage());
+            }
+        }
+
+        markDelivered(delivered);
+        scheduleRetry(failed);
+    }
+
+    private void markDelivered(List<QueuedMail> delivered) {
+        if (delivered.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(delivered.size());
+        for (QueuedMail mail : delivered) {
+            ObjectNode redacted = objectMapper.createObjectNode();
+            redacted.put("to", mail.message.getTo() == null ? null : String.join(",", mail.message.getTo()));
+            redacted.put("subject", mail.message.getSubject());
+            rows.add(new Object[]{redacted.toString(), mail.id, mail.occurredAt});
+        }
+        jdbcTemplate.batchUpdate(DELIVERED_SQL, rows);
+        log.debug("MailOutboxWorker: delivered {} email(s)", delivered.size());
+    }
+
+    private void scheduleRetry(List<QueuedMail> failed) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        List<Object[]> retries = new ArrayList<>(failed.size());
+        List<Object[]> deadLetters = new ArrayList<>();
+        for (QueuedMail mail : failed) {
+            int attempt = mail.retryCount + 1;
+            if (attempt >= properties.getMaxRetries()) {
+                log.error("MailOutboxWorker: email id={} failed {} times, giving up", mail.id, attempt);
+                deadLetters.add(new Object[]{mail.id, mail.occurredAt});
+            } else {
+                retries.add(new Object[]{backoffSeconds(mail.retryCount), mail.id, mail.occurredAt});
+            }
+        }
+        if (!retries.isEmpty()) {
+            jdbcTemplate.batchUpdate(RETRY_SQL, retries);
+        }
+        if (!deadLetters.isEmpty()) {
+            jdbcTemplate.batchUpdate(DEAD_LETTER_SQL, deadLetters);
+        }
+    }
+
+    private long backoffSeconds(int retryCount) {
+        long base = properties.getRetryBackoff().toSeconds();
+        long max = properties.getRetryBackoffMax().toSeconds();
+        long delay = base << Math.min(retryCount, 20);
+        return Math.min(max, Math.max(1, delay));
+    }
+
+    private static SimpleMailMessage toMessage(JsonNode payload) {
+        SimpleMailMessage msg = new SimpleMailMessage();
+        // from will be taken from spring.mail.username or configured default
+        msg.setTo(payload.path("to").asText());
+        msg.setSubject(payload.path("subject").asText());
+        msg.setText(payload.path("body").asText());
+        return msg;
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdown();
+    }
+
+    private static final class QueuedMail {
+        final UUID id;
+        final Timestamp occurredAt;
+        final String payload;
+        final int retryCount;
+        SimpleMailMessage message;
+
+        QueuedMail(UUID id, Timestamp occurredAt, String payload, int retryCount) {
+            this.id = id;
+            this.occurredAt = occurredAt;
+            this.payload = payload;
+            this.retryCount = retryCount;
+        }
+    }
+}
@@ -49,4 +49,16 @@ public class OutboxMessage {
 
     @Column(name = "retry_count", nullable = false)
     private int retryCount = 0;
+
+    /**
+     * Gave up after max retries; such rows are processed too, so they expire with their partition.
+     */
+    @Column(name = "failed", nullable = false)
+    private boolean failed;
+
+    /**
+     * Not picked up before this instant; used by the mail worker for its claim lease and retry backoff.
+     */
+    @Column(name = "available_at", nullable = false)
+    private OffsetDateTime availableAt;
 }
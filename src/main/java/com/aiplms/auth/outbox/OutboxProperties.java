@@ -26,4 +26,51 @@ public class OutboxProperties {
      * Default 5 — application can extend behavior later.
      */
     private int maxRetries = 5;
+
+    /**
+     * Delivery of queued emails (EmailService.OUTBOX_EVENT_TYPE) by MailOutboxWorker.
+     */
+    private Mail mail = new Mail();
+
+    @Getter
+    @Setter
+    public static class Mail {
+
+        /**
+         * Maximum emails claimed per batch (default: 50).
+         */
+        private int batchSize = 50;
+
+        /**
+         * Full batches sent back to back in one poll before yielding until the next poll, so a backlog does not
+         * hold the scheduler thread (default: 10).
+         */
+        private int maxBatchesPerPoll = 10;
+
+        /**
+         * Parallel SMTP connections per poll; each sends its share of the batch over one connection (default: 2).
+         */
+        private int concurrency = 2;
+
+        /**
+         * Delivery attempts before an email is closed as failed, kept for inspection until its partition is
+         * dropped (default: 8).
+         */
+        private int maxRetries = 8;
+
+        /**
+         * How long a claimed batch is hidden from other workers before it may be claimed again (default: 2 minutes).
+         */
+        private Duration claimLease = Duration.ofMinutes(2);
+
+        /**
+         * Delay before the first retry; doubles per attempt up to retryBackoffMax (default: 30 seconds).
+         */
+        private Duration retryBackoff = Duration.ofSeconds(30);
+
+        /**
+         * Upper bound for the retry delay (default: 30 minutes).
+         */
+        private Duration retryBackoffMax = Duration.ofMinutes(30);
+    }
 }
@@ -1,5 +1,6 @@
 package com.aiplms.auth.outbox;
 
+import com.aiplms.auth.service.EmailService;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,7 +15,8 @@ import java.util.List;
  * Polls the outbox table and attempts to publish events.
  *
  * This is intentionally simple — it delegates publishing to an OutboxPublisher,
- * and updates the outbox row state accordingly.
+ * and updates the outbox row state accordingly. Queued emails are delivered by
+ * {@link MailOutboxWorker} and skipped here.
  */
 @Service
 public class OutboxRelay {
@@ -50,7 +52,8 @@ public class OutboxRelay {
 
     @Transactional
     protected void processBatch() {
-        List<OutboxMessage> pending = repository.findTop100ByProcessedFalseOrderByOccurredAtAsc();
+        List<OutboxMessage> pending = repository.findTop100ByProcessedFalseAndTypeNotOrderByOccurredAtAsc(
+                EmailService.OUTBOX_EVENT_TYPE);
         if (pending.isEmpty()) {
             if (log.isTraceEnabled()) {
                 log.trace("OutboxRelay: no pending messages");
@@ -61,9 +64,10 @@ public class OutboxRelay {
         log.info("OutboxRelay: processing {} outbox messages (batchSize={})", pending.size(), properties.getBatchSize());
         for (OutboxMessage msg : pending) {
             if (msg.getRetryCount() >= properties.getMaxRetries()) {
-                log.warn("OutboxRelay: message id={} reached max retries ({}). Skipping for now.",
-                        msg.getId(), msg.getRetryCount());
-                continue; // later we may move to DLQ/poison queue
+                // e.g. max-retries was lowered: close it rather than keep it pending (and its partition) forever
+                deadLetter(msg);
+                repository.save(msg);
+                continue;
             }
 
             try {
@@ -76,16 +80,34 @@ public class OutboxRelay {
                 log.info("OutboxRelay: published and marked processed id={}", msg.getId());
             } catch (IOException ex) {
                 // treat as transient error: increment retry count and persist
-                msg.setRetryCount(msg.getRetryCount() + 1);
+                recordFailure(msg);
                 repository.save(msg);
                 log.warn("OutboxRelay: transient error publishing id={}, retryCount={}, error={}",
                         msg.getId(), msg.getRetryCount(), ex.getMessage());
             } catch (Exception ex) {
                 // unexpected/unrecoverable — increment retry and log; keep unprocessed for future attempts
-                msg.setRetryCount(msg.getRetryCount() + 1);
+                recordFailure(msg);
                 repository.save(msg);
                 log.error("OutboxRelay: error publishing id={}, retryCount={}, error={}", msg.getId(), msg.getRetryCount(), ex.getMessage(), ex);
             }
         }
     }
+
+    private void recordFailure(OutboxMessage msg) {
+        msg.setRetryCount(msg.getRetryCount() + 1);
+        if (msg.getRetryCount() >= properties.getMaxRetries()) {
+            deadLetter(msg);
+        }
+    }
+
+    /**
+     * Terminal state for a message that ran out of retries: processed, so it no longer counts as pending, and
+     * failed, so it can be told apart from a published one until its partition is dropped.
+     */
+    private void deadLetter(OutboxMessage msg) {
+        msg.setProcessed(true);
+        msg.setProcessedAt(OffsetDateTime.now());
+        msg.setFailed(true);
+        log.error("OutboxRelay: message id={} failed {} times, giving up", msg.getId(), msg.getRetryCount());
+    }
 }
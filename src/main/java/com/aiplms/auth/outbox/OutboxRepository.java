@@ -10,4 +10,9 @@ import java.util.UUID;
 public interface OutboxRepository extends JpaRepository<OutboxMessage, UUID> {
 
     List<OutboxMessage> findTop100ByProcessedFalseOrderByOccurredAtAsc();
+
+    /**
+     * Pending messages except the given type (used by the relay to leave queued emails to MailOutboxWorker).
+     */
+    List<OutboxMessage> findTop100ByProcessedFalseAndTypeNotOrderByOccurredAtAsc(String type);
 }
@@ -8,7 +8,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 public interface EmailVerificationTokenRepository extends JpaRepository<EmailVerificationToken, UUID> {
-    Optional<EmailVerificationToken> findByTokenHash(String tokenHash);
+    Optional<EmailVerificationToken> findByTokenHash(byte[] tokenHash);
     Optional<EmailVerificationToken> findTopByUserOrderByCreatedAtDesc(User user);
     void deleteByUser(User user);
 }
@@ -8,7 +8,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, UUID> {
-    Optional<PasswordResetToken> findByTokenHash(String tokenHash);
+    Optional<PasswordResetToken> findByTokenHash(byte[] tokenHash);
     Optional<PasswordResetToken> findTopByUserOrderByCreatedAtDesc(User user);
     void deleteByUser(User user);
 }
@@ -1,19 +1,88 @@
 package com.aiplms.auth.repository;
 
 import com.aiplms.auth.entity.RefreshToken;
-import com.aiplms.auth.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.List;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
 
-    Optional<RefreshToken> findByTokenHash(String tokenHash);
+    /*
+     * refresh_tokens is range-partitioned on created_at (V14). Every query carries a lower created_at bound so
+     * Postgres only visits the partitions that can hold a live token; callers pass now - refresh token TTL.
+     */
 
-    List<RefreshToken> findAllByUserAndRevokedFalse(User user);
+    /**
+     * Selector lookup: primary key (id, created_at) scan.
+     */
+    Optional<RefreshToken> findByIdAndCreatedAtAfter(UUID id, Instant notBefore);
+
+    /**
+     * Legacy lookup for opaque tokens issued before the selector/verifier format (idx_refresh_tokens_token_hash).
+     */
+    Optional<RefreshToken> findByTokenHashAndCreatedAtAfter(byte[] tokenHash, Instant notBefore);
+
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.id = :id and t.createdAt = :createdAt")
+    int revoke(@Param("id") UUID id, @Param("createdAt") Instant createdAt);
+
+    /**
+     * Revoke every live refresh token of a user in one UPDATE (served by idx_refresh_tokens_user_live).
+     *
+     * @return number of tokens revoked
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true "
+            + "where t.user.id = :userId and t.revoked = false and t.createdAt > :notBefore")
+    int revokeAllByUserId(@Param("userId") UUID userId, @Param("notBefore") Instant notBefore);
+
+    /**
+     * Rotation in one statement: revoke the presented token if it is still active and insert its successor for
+     * the same user. The row lock taken by the UPDATE serialises concurrent rotations of one token, and the
+     * loser re-checks revoked = false after the winner commits, so only one successor is ever issued.
+     *
+     * @return the owner's id, or empty if the token is unknown, revoked or expired
+     */
+    @Query(value = """
+            WITH consumed AS (
+                UPDATE refresh_tokens SET revoked = true
+                WHERE id = :id AND token_hash = :hash AND revoked = false AND expires_at > now()
+                  AND created_at > :notBefore
+                RETURNING user_id)
+            INSERT INTO refresh_tokens (id, user_id, token_hash, revoked, expires_at, created_at)
+            SELECT :newId, user_id, :newHash, false, :newExpiresAt, now() FROM consumed
+            RETURNING user_id
+            """, nativeQuery = true)
+    Optional<UUID> rotate(@Param("id") UUID id,
+                          @Param("hash") byte[] hash,
+                          @Param("notBefore") Instant notBefore,
+                          @Param("newId") UUID newId,
+                          @Param("newHash") byte[] newHash,
+                          @Param("newExpiresAt") Instant newExpiresAt);
+
+    /**
+     * {@link #rotate(UUID, byte[], Instant, UUID, byte[], Instant)} for legacy opaque tokens, found by hash.
+     */
+    @Query(value = """
+            WITH consumed AS (
+                UPDATE refresh_tokens SET revoked = true
+                WHERE token_hash = :hash AND revoked = false AND expires_at > now() AND created_at > :notBefore
+                RETURNING user_id)
+            INSERT INTO refresh_tokens (id, user_id, token_hash, revoked, expires_at, created_at)
+            SELECT :newId, user_id, :newHash, false, :newExpiresAt, now() FROM consumed
+            RETURNING user_id
+            """, nativeQuery = true)
+    Optional<UUID> rotateLegacy(@Param("hash") byte[] hash,
+                                @Param("notBefore") Instant notBefore,
+                                @Param("newId") UUID newId,
+                                @Param("newHash") byte[] newHash,
+                                @Param("newExpiresAt") Instant newExpiresAt);
 }
 
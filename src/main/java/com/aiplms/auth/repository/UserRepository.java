@@ -2,25 +2,49 @@ package com.aiplms.auth.repository;
 
 import com.aiplms.auth.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Case-insensitive lookups are written with lower() on purpose: the unique indexes from V2 are on
+ * LOWER(email)/LOWER(username), while Spring Data's IgnoreCase derivation emits upper() and can't use them.
+ */
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
 
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
 
-    Optional<User> findByEmailIgnoreCase(String email);
-
-    Optional<User> findByUsernameIgnoreCase(String username);
-
-    boolean existsByEmailIgnoreCase(String email);
-
-    boolean existsByUsernameIgnoreCase(String username);
-
     Optional<User> findByEmail(String email);
-}
 
+    @Query("select u from User u left join fetch u.roles where u.id = :id")
+    Optional<User> findByIdWithRoles(@Param("id") UUID id);
+
+    /**
+     * Users whose username or email matches the identifier (case-insensitive), roles fetched in the same query.
+     * One round trip, resolved through ux_users_username / ux_users_email (BitmapOr in PostgreSQL).
+     */
+    @Query("select distinct u from User u left join fetch u.roles "
+            + "where lower(u.username) = lower(:identifier) or lower(u.email) = lower(:identifier)")
+    List<User> findAllByUsernameOrEmailWithRoles(@Param("identifier") String identifier);
+
+    /**
+     * Resolve a login identifier (username or email). A username match wins if, unusually, the identifier
+     * is one user's username and another user's email - same precedence as the old two-query lookup.
+     */
+    default Optional<User> findByUsernameOrEmail(String identifier) {
+        List<User> matches = findAllByUsernameOrEmailWithRoles(identifier);
+        if (matches.size() <= 1) {
+            return matches.stream().findFirst();
+        }
+        return matches.stream()
+                .filter(u -> u.getUsername().equalsIgnoreCase(identifier))
+                .findFirst()
+                .or(() -> matches.stream().findFirst());
+    }
+}
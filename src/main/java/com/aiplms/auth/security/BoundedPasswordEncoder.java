@@ -0,0 +1,132 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.exception.Exceptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * PasswordEncoder that runs the expensive hash work on a dedicated, bounded executor.
+ *
+ * Only (threads + queue capacity) callers can be hashing or waiting at once; everyone else gets an immediate
+ * 503 (AUTH_ERR_BUSY) instead of piling onto the servlet pool, so a login burst or credential-stuffing wave
+ * can't starve cheap endpoints like /token/refresh or /me. {@link #upgradeEncoding} is cheap and stays inline.
+ * The executor is owned by this encoder and shut down with it.
+ *
+ * Metrics:
+ * - auth.password.hashing.queue / .active (gauges) - backlog and busy threads, suitable for autoscaling
+ * - auth.password.hashing{operation=encode|matches} (timer) - time spent hashing
+ * - auth.password.hashing.wait (timer) - time a request waited for a hashing thread
+ * - auth.password.hashing.rejected{reason=queue_full|timeout} (counter)
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer waitTimer;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, ThreadPoolExecutor executor, Duration maxWait,
+                                  MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        this.encodeTimer = Timer.builder("auth.password.hashing")
+                .tag("operation", "encode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hashing")
+                .tag("operation", "matches")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("auth.password.hashing.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("auth.password.hashing.rejected")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("auth.password.hashing.rejected")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.queue", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> hash, Timer timer) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedQueueFull.increment();
+            throw Exceptions.serviceBusy("Too many concurrent sign-in requests, please retry");
+        }
+
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedTimeout.increment();
+            throw Exceptions.serviceBusy("Too many concurrent sign-in requests, please retry");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw Exceptions.internal("Interrupted while hashing password");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            log.error("Password hashing failed", cause);
+            throw Exceptions.internal("Password hashing failed");
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.aiplms.auth.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads up to maxBytes of the body up front so a filter can look at it, and replays it (followed by whatever
+ * was not read) to the rest of the chain.
+ */
+final class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
+
+    private final byte[] head;
+    private final boolean complete;
+    private ServletInputStream stream;
+    private BufferedReader reader;
+
+    CachedBodyHttpServletRequest(HttpServletRequest request, int maxBytes) throws IOException {
+        super(request);
+        byte[] read = request.getInputStream().readNBytes(maxBytes + 1);
+        this.complete = read.length <= maxBytes;
+        this.head = read;
+    }
+
+    /**
+     * @return the whole body, or null if it is longer than maxBytes
+     */
+    byte[] body() {
+        return complete ? head : null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (stream == null) {
+            InputStream in = complete
+                    ? new ByteArrayInputStream(head)
+                    : new SequenceInputStream(new ByteArrayInputStream(head), super.getInputStream());
+            stream = new ReplayInputStream(in);
+        }
+        return stream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+        return reader;
+    }
+
+    private static final class ReplayInputStream extends ServletInputStream {
+        private final InputStream in;
+        private boolean finished;
+
+        ReplayInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            finished = b < 0;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            finished = n < 0;
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("async reads are not supported");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.aiplms.auth.entity.User;
 import com.aiplms.auth.exception.Exceptions;
 import com.aiplms.auth.repository.UserRepository;
 import com.aiplms.auth.service.TokenBlacklistService;
+import com.aiplms.auth.service.UserRevocationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
@@ -28,8 +29,10 @@ import java.util.stream.Collectors;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final UserRepository userRepository;
     private final TokenBlacklistService tokenBlacklistService;
+    private final UserRevocationService userRevocationService;
 
     @Override
     protected void doFilterInternal(
@@ -46,38 +49,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             }
 
             String token = header.substring(7);
-            JwtService.JwtClaims claims = jwtService.parseAndValidate(token);
+            // signature/expiry checked once per token lifetime; later requests hit the cache
+            ValidatedToken validated = verifiedTokenCache.get(token, jwtService::validate);
 
-            if (tokenBlacklistService.isBlacklisted(token)) {
+            if (tokenBlacklistService.isBlacklisted(validated)) {
                 throw Exceptions.unauthorized("Access token revoked");
             }
-
-            // Expecting "id" claim (UUID) as created in AuthServiceImpl
-            String idStr = claims.getClaimAsString("id");
-            if (idStr == null) {
-                log.debug("JWT has no 'id' claim - skipping authentication");
-                filterChain.doFilter(request, response);
-                return;
-            }
-
-            UUID userId = UUID.fromString(idStr);
-            User user = userRepository.findById(userId).orElse(null);
-            if (user == null) {
-                log.debug("User not found for id from JWT: {}", userId);
-                filterChain.doFilter(request, response);
-                return;
+            // downstream (e.g. logout) reuses the validation result instead of parsing again
+            request.setAttribute(ValidatedToken.REQUEST_ATTRIBUTE, validated);
+
+            UsernamePasswordAuthenticationToken authentication;
+            if (validated.isSelfContained()) {
+                // roles + security version are in the token: no user lookup on the hot path
+                if (userRevocationService.isRevoked(validated.getUserId(), validated.getSecurityVersion(),
+                        validated.getIssuedAt())) {
+                    throw Exceptions.unauthorized("Access token revoked");
+                }
+                authentication = new UsernamePasswordAuthenticationToken(
+                        validated.getUsername(), null, validated.getAuthorities());
+            } else {
+                // tokens issued before roles/sv were embedded: resolve the user as before
+                authentication = authenticationFromUser(validated);
+                if (authentication == null) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
             }
 
-            List<SimpleGrantedAuthority> authorities = user.getRoles() == null
-                    ? List.of()
-                    : user.getRoles().stream()
-                    .map(r -> new SimpleGrantedAuthority(r.getName()))
-                    .collect(Collectors.toList());
-
-            // Build Authentication; leave credentials null
-            UsernamePasswordAuthenticationToken authentication =
-                    new UsernamePasswordAuthenticationToken(user.getUsername(), null, authorities);
-
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
         } catch (JwtService.JwtValidationException ex) {
@@ -96,6 +94,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UsernamePasswordAuthenticationToken authenticationFromUser(ValidatedToken validated) {
+        // Expecting "id" claim (UUID) as created in AuthServiceImpl
+        UUID userId = validated.getUserId();
+        if (userId == null) {
+            log.debug("JWT has no 'id' claim - skipping authentication");
+            return null;
+        }
+
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            log.debug("User not found for id from JWT: {}", userId);
+            return null;
+        }
+
+        List<SimpleGrantedAuthority> authorities = user.getRoles() == null
+                ? List.of()
+                : user.getRoles().stream()
+                .map(r -> new SimpleGrantedAuthority(r.getName()))
+                .collect(Collectors.toList());
+
+        // Build Authentication; leave credentials null
+        return new UsernamePasswordAuthenticationToken(user.getUsername(), null, authorities);
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         // Let security rules + SecurityConfig decide which endpoints require authentication.
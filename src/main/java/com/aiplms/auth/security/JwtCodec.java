@@ -0,0 +1,584 @@
+package com.aiplms.auth.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encoder/decoder specialised for the access tokens this service issues.
+ *
+ * Our header and claim layout is fixed (jti, sub, iat, iat_ms, exp, id, username, email, roles, sv), so instead of
+ * Nimbus' generic JSON maps this writes the payload directly into per-thread buffers, signs HS256 with a
+ * per-thread {@link Mac}, and on decode reads only those fields. Anything that doesn't look exactly like our own
+ * output (unknown header bytes, extra claims, unusual JSON) makes {@link #decode} return null so the caller falls
+ * back to the Nimbus path. A token whose header matches one of our keys but whose signature doesn't verify is
+ * rejected outright.
+ *
+ * RS256/ES256 tokens still sign/verify through the Nimbus signer/verifier (the RSA/EC math dominates there);
+ * they only benefit from the cheaper JSON handling.
+ */
+@Component
+public class JwtCodec {
+
+    // our tokens are well below this; anything bigger takes the generic path
+    private static final int MAX_TOKEN_LENGTH = 4096;
+
+    private static final byte[] B64_ENCODE =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] B64_DECODE = new int[128];
+
+    static {
+        Arrays.fill(B64_DECODE, -1);
+        for (int i = 0; i < B64_ENCODE.length; i++) {
+            B64_DECODE[B64_ENCODE[i]] = i;
+        }
+    }
+
+    private final JwtKeyManager keyManager;
+    private final byte[] signingHeaderSegment;
+    private final KnownHeader[] knownHeaders;
+    private final ThreadLocal<Mac> hmac;
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public JwtCodec(JwtKeyManager keyManager) {
+        this.keyManager = keyManager;
+
+        JWSHeader signing = keyManager.getSigningHeader();
+        this.signingHeaderSegment = headerSegment(signing.getAlgorithm(), signing.getKeyID())
+                .getBytes(StandardCharsets.US_ASCII);
+
+        List<KnownHeader> known = new ArrayList<>();
+        for (Map.Entry<String, JWSAlgorithm> e : keyManager.getAlgorithmsByKid().entrySet()) {
+            addKnownHeaders(known, e.getValue(), e.getKey());
+        }
+        if (keyManager.getHmacSecret() != null) {
+            addKnownHeaders(known, JWSAlgorithm.HS256, null);
+        }
+        this.knownHeaders = known.stream().filter(k -> k.verifier != null).toArray(KnownHeader[]::new);
+
+        byte[] secret = keyManager.getHmacSecret();
+        this.hmac = secret == null ? null : ThreadLocal.withInitial(() -> newHmac(secret));
+    }
+
+    /**
+     * Encode and sign the fixed claim set. Returns the compact serialization.
+     */
+    public String encode(String jti, UUID userId, String username, String email, List<String> roles,
+                         long securityVersion, long issuedAtEpochMilli, long expiresAtEpochSecond) {
+        Buffers b = buffers.get();
+        String id = userId.toString();
+
+        StringBuilder json = b.json;
+        json.setLength(0);
+        json.append("{\"jti\":");
+        appendJsonString(json, jti);
+        json.append(",\"sub\":");
+        appendJsonString(json, id);
+        json.append(",\"iat\":").append(Math.floorDiv(issuedAtEpochMilli, 1000L));
+        json.append(",\"iat_ms\":").append(issuedAtEpochMilli);
+        json.append(",\"exp\":").append(expiresAtEpochSecond);
+        json.append(",\"id\":");
+        appendJsonString(json, id);
+        json.append(",\"username\":");
+        appendJsonString(json, username);
+        json.append(",\"email\":");
+        appendJsonString(json, email);
+        json.append(",\"roles\":[");
+        for (int i = 0; i < roles.size(); i++) {
+            if (i > 0) json.append(',');
+            appendJsonString(json, roles.get(i));
+        }
+        json.append("],\"sv\":").append(securityVersion).append('}');
+
+        int payloadLen = utf8(json, b);
+        byte[] out = b.ensureOut(signingHeaderSegment.length + 1 + base64Length(payloadLen) + 1 + 700);
+        int pos = 0;
+        System.arraycopy(signingHeaderSegment, 0, out, 0, signingHeaderSegment.length);
+        pos += signingHeaderSegment.length;
+        out[pos++] = '.';
+        pos = base64UrlEncode(b.utf8, 0, payloadLen, out, pos);
+        int signingInputLen = pos;
+        out[pos++] = '.';
+
+        try {
+            if (hmac != null && JWSAlgorithm.HS256.equals(keyManager.getSigningAlgorithm())) {
+                Mac mac = hmac.get();
+                mac.update(out, 0, signingInputLen);
+                mac.doFinal(b.mac, 0);
+                pos = base64UrlEncode(b.mac, 0, 32, out, pos);
+            } else {
+                byte[] signature = keyManager.getSigner()
+                        .sign(keyManager.getSigningHeader(), Arrays.copyOf(out, signingInputLen))
+                        .decode();
+                out = b.ensureOut(pos + base64Length(signature.length));
+                pos = base64UrlEncode(signature, 0, signature.length, out, pos);
+            }
+        } catch (GeneralSecurityException | JOSEException e) {
+            throw new IllegalStateException("Failed to sign JWT", e);
+        }
+        return new String(out, 0, pos, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Verify and decode a token produced by {@link #encode}.
+     *
+     * @return the validated token, or null if the token isn't in our layout (caller should use Nimbus)
+     * @throws JwtService.JwtValidationException if the signature is invalid or the token expired
+     */
+    public ValidatedToken decode(String token, long nowEpochMillis) {
+        int len = token.length();
+        if (len > MAX_TOKEN_LENGTH) return null;
+        int d1 = token.indexOf('.');
+        int d2 = d1 < 0 ? -1 : token.indexOf('.', d1 + 1);
+        if (d2 < 0 || token.indexOf('.', d2 + 1) >= 0) return null;
+
+        KnownHeader header = null;
+        for (KnownHeader k : knownHeaders) {
+            if (k.segment.length() == d1 && token.startsWith(k.segment)) {
+                header = k;
+                break;
+            }
+        }
+        if (header == null) return null;
+
+        Buffers b = buffers.get();
+        byte[] ascii = b.ensureOut(len);
+        for (int i = 0; i < len; i++) {
+            char c = token.charAt(i);
+            if (c >= 128) return null;
+            ascii[i] = (byte) c;
+        }
+
+        if (!verify(header, ascii, d2, len, b)) {
+            throw new JwtService.JwtValidationException("Invalid JWT signature");
+        }
+
+        int payloadLen = base64UrlDecode(ascii, d1 + 1, d2, b);
+        if (payloadLen < 0) return null;
+
+        Claims claims = new Claims();
+        if (!claims.parse(b.decoded, payloadLen)) return null;
+        if (claims.exp == null) {
+            throw new JwtService.JwtValidationException("Missing exp claim");
+        }
+        if (claims.exp * 1000L < nowEpochMillis) {
+            throw new JwtService.JwtValidationException("JWT token expired");
+        }
+        if (claims.jti == null || claims.id == null || claims.iat == null) return null;
+
+        UUID userId;
+        try {
+            userId = UUID.fromString(claims.id);
+        } catch (IllegalArgumentException e) {
+            throw new JwtService.JwtValidationException("Invalid id claim", e);
+        }
+        List<GrantedAuthority> authorities = claims.roles == null ? null : JwtService.toAuthorities(claims.roles);
+
+        Instant expiresAt = Instant.ofEpochSecond(claims.exp);
+        Instant issuedAt = claims.iatMs != null ? Instant.ofEpochMilli(claims.iatMs) : Instant.ofEpochSecond(claims.iat);
+        JwtService.JwtClaims lazyClaims = new JwtService.JwtClaims(() -> claims.toClaimsSet(issuedAt, expiresAt));
+        return new ValidatedToken(lazyClaims, claims.jti, claims.jti, expiresAt, issuedAt,
+                userId, claims.username, authorities, claims.sv);
+    }
+
+    private boolean verify(KnownHeader header, byte[] ascii, int signingInputLen, int len, Buffers b) {
+        if (header.hmac) {
+            if (hmac == null) return false;
+            int sigLen = base64UrlDecode(ascii, signingInputLen + 1, len, b);
+            if (sigLen != 32) return false;
+            Mac mac = hmac.get();
+            mac.update(ascii, 0, signingInputLen);
+            try {
+                mac.doFinal(b.mac, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC failed", e);
+            }
+            return MessageDigest.isEqual(Arrays.copyOf(b.decoded, 32), b.mac);
+        }
+        try {
+            Base64URL signature = new Base64URL(new String(ascii, signingInputLen + 1, len - signingInputLen - 1,
+                    StandardCharsets.US_ASCII));
+            return header.verifier.verify(header.header, Arrays.copyOf(ascii, signingInputLen), signature);
+        } catch (JOSEException e) {
+            return false;
+        }
+    }
+
+    // --- header helpers ---
+
+    /**
+     * Registers our own header segment plus the one Nimbus produces for the same header (different member
+     * order), so tokens issued before the codec was enabled also take the fast path.
+     */
+    private void addKnownHeaders(List<KnownHeader> known, JWSAlgorithm alg, String kid) {
+        JWSHeader.Builder hb = new JWSHeader.Builder(alg).type(JOSEObjectType.JWT);
+        if (kid != null) hb.keyID(kid);
+        JWSHeader header = hb.build();
+        JWSVerifier verifier = keyManager.verifierFor(header);
+        boolean hmacHeader = JWSAlgorithm.HS256.equals(alg);
+        String own = headerSegment(alg, kid);
+        known.add(new KnownHeader(own, header, verifier, hmacHeader));
+        String nimbus = header.toBase64URL().toString();
+        if (!nimbus.equals(own)) {
+            known.add(new KnownHeader(nimbus, header, verifier, hmacHeader));
+        }
+    }
+
+    private static String headerSegment(JWSAlgorithm alg, String kid) {
+        StringBuilder sb = new StringBuilder("{\"alg\":");
+        appendJsonString(sb, alg.getName());
+        if (kid != null) {
+            sb.append(",\"kid\":");
+            appendJsonString(sb, kid);
+        }
+        sb.append(",\"typ\":\"JWT\"}");
+        byte[] json = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[base64Length(json.length)];
+        int n = base64UrlEncode(json, 0, json.length, out, 0);
+        return new String(out, 0, n, StandardCharsets.US_ASCII);
+    }
+
+    private static Mac newHmac(byte[] secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    // --- encoding helpers ---
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static int utf8(CharSequence cs, Buffers b) {
+        byte[] out = b.ensureUtf8(cs.length() * 3);
+        int pos = 0;
+        for (int i = 0; i < cs.length(); i++) {
+            char c = cs.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < cs.length()
+                    && Character.isLowSurrogate(cs.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, cs.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (cp >> 18));
+                out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static int base64Length(int n) {
+        return (n * 4 + 2) / 3;
+    }
+
+    private static int base64UrlEncode(byte[] src, int off, int len, byte[] dst, int pos) {
+        int end = off + len;
+        int i = off;
+        while (i + 3 <= end) {
+            int v = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[pos++] = B64_ENCODE[v >>> 18];
+            dst[pos++] = B64_ENCODE[(v >>> 12) & 0x3F];
+            dst[pos++] = B64_ENCODE[(v >>> 6) & 0x3F];
+            dst[pos++] = B64_ENCODE[v & 0x3F];
+            i += 3;
+        }
+        int rem = end - i;
+        if (rem == 1) {
+            int v = (src[i] & 0xFF) << 16;
+            dst[pos++] = B64_ENCODE[v >>> 18];
+            dst[pos++] = B64_ENCODE[(v >>> 12) & 0x3F];
+        } else if (rem == 2) {
+            int v = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8;
+            dst[pos++] = B64_ENCODE[v >>> 18];
+            dst[pos++] = B64_ENCODE[(v >>> 12) & 0x3F];
+            dst[pos++] = B64_ENCODE[(v >>> 6) & 0x3F];
+        }
+        return pos;
+    }
+
+    /**
+     * Decode unpadded base64url from ascii[from, to) into b.decoded. Returns the length or -1 if malformed.
+     */
+    private static int base64UrlDecode(byte[] ascii, int from, int to, Buffers b) {
+        int n = to - from;
+        if (n % 4 == 1) return -1;
+        byte[] out = b.ensureDecoded(n * 3 / 4 + 3);
+        int pos = 0;
+        int acc = 0;
+        int bits = 0;
+        for (int i = from; i < to; i++) {
+            int c = ascii[i];
+            int v = c < 0 ? -1 : B64_DECODE[c];
+            if (v < 0) return -1;
+            acc = (acc << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[pos++] = (byte) (acc >> bits);
+            }
+        }
+        return pos;
+    }
+
+    // --- per-thread scratch space ---
+
+    private static final class Buffers {
+        final StringBuilder json = new StringBuilder(512);
+        final byte[] mac = new byte[32];
+        byte[] utf8 = new byte[1024];
+        byte[] out = new byte[1024];
+        byte[] decoded = new byte[1024];
+
+        byte[] ensureUtf8(int n) {
+            if (utf8.length < n) utf8 = new byte[n];
+            return utf8;
+        }
+
+        byte[] ensureOut(int n) {
+            if (out.length < n) out = Arrays.copyOf(out, n);
+            return out;
+        }
+
+        byte[] ensureDecoded(int n) {
+            if (decoded.length < n) decoded = new byte[n];
+            return decoded;
+        }
+    }
+
+    private record KnownHeader(String segment, JWSHeader header, JWSVerifier verifier, boolean hmac) {
+    }
+
+    /**
+     * Minimal reader for our flat claim object. Returns false on anything unexpected so the caller can fall
+     * back to the generic parser; it never has to be lenient because only signed payloads reach it.
+     */
+    private static final class Claims {
+        String jti;
+        String sub;
+        Long iat;
+        Long iatMs;
+        Long exp;
+        String id;
+        String username;
+        String email;
+        List<String> roles;
+        Long sv;
+
+        private byte[] buf;
+        private int pos;
+        private int end;
+
+        boolean parse(byte[] json, int length) {
+            this.buf = json;
+            this.pos = 0;
+            this.end = length;
+            try {
+                if (!consume('{')) return false;
+                if (peek() == '}') return true;
+                do {
+                    String key = readString();
+                    if (key == null || !consume(':')) return false;
+                    if (!readField(key)) return false;
+                } while (consume(','));
+                return consume('}') && pos == end;
+            } finally {
+                this.buf = null;
+            }
+        }
+
+        private boolean readField(String key) {
+            switch (key) {
+                case "jti" -> jti = readString();
+                case "sub" -> sub = readString();
+                case "id" -> id = readString();
+                case "username" -> username = readString();
+                case "email" -> email = readString();
+                case "iat" -> iat = readLong();
+                case "iat_ms" -> iatMs = readLong();
+                case "exp" -> exp = readLong();
+                case "sv" -> sv = readLong();
+                case "roles" -> roles = readStringArray();
+                default -> {
+                    return false;
+                }
+            }
+            return switch (key) {
+                case "jti" -> jti != null;
+                case "sub" -> sub != null;
+                case "id" -> id != null;
+                case "username" -> username != null;
+                case "email" -> email != null;
+                case "iat" -> iat != null;
+                case "iat_ms" -> iatMs != null;
+                case "exp" -> exp != null;
+                case "sv" -> sv != null;
+                default -> roles != null;
+            };
+        }
+
+        private List<String> readStringArray() {
+            if (!consume('[')) return null;
+            List<String> values = new ArrayList<>(2);
+            if (consume(']')) return values;
+            do {
+                String v = readString();
+                if (v == null) return null;
+                values.add(v);
+            } while (consume(','));
+            return consume(']') ? values : null;
+        }
+
+        private Long readLong() {
+            int start = pos;
+            long v = 0;
+            boolean negative = pos < end && buf[pos] == '-';
+            if (negative) pos++;
+            int digitsStart = pos;
+            while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+                if (pos - digitsStart >= 18) return null;
+                v = v * 10 + (buf[pos++] - '0');
+            }
+            if (pos == digitsStart || pos == start) return null;
+            if (pos < end && (buf[pos] == '.' || buf[pos] == 'e' || buf[pos] == 'E')) return null;
+            return negative ? -v : v;
+        }
+
+        private String readString() {
+            if (pos >= end || buf[pos] != '"') return null;
+            int start = ++pos;
+            while (pos < end) {
+                byte c = buf[pos];
+                if (c == '"') {
+                    return new String(buf, start, pos++ - start, StandardCharsets.UTF_8);
+                }
+                if (c == '\\') {
+                    return readEscapedString(start);
+                }
+                pos++;
+            }
+            return null;
+        }
+
+        private String readEscapedString(int start) {
+            StringBuilder sb = new StringBuilder(new String(buf, start, pos - start, StandardCharsets.UTF_8));
+            int runStart = pos;
+            while (pos < end) {
+                byte c = buf[pos];
+                if (c == '"') {
+                    sb.append(new String(buf, runStart, pos - runStart, StandardCharsets.UTF_8));
+                    pos++;
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    pos++;
+                    continue;
+                }
+                sb.append(new String(buf, runStart, pos - runStart, StandardCharsets.UTF_8));
+                if (pos + 1 >= end) return null;
+                byte e = buf[pos + 1];
+                pos += 2;
+                switch (e) {
+                    case '"' -> sb.append('"');
+                    case '\\' -> sb.append('\\');
+                    case '/' -> sb.append('/');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (pos + 4 > end) return null;
+                        try {
+                            sb.append((char) Integer.parseInt(new String(buf, pos, 4, StandardCharsets.US_ASCII), 16));
+                        } catch (NumberFormatException ex) {
+                            return null;
+                        }
+                        pos += 4;
+                    }
+                    default -> {
+                        return null;
+                    }
+                }
+                runStart = pos;
+            }
+            return null;
+        }
+
+        private boolean consume(char c) {
+            if (pos < end && buf[pos] == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private int peek() {
+            return pos < end ? buf[pos] : -1;
+        }
+
+        JWTClaimsSet toClaimsSet(Instant issuedAt, Instant expiresAt) {
+            JWTClaimsSet.Builder builder = new JWTClaimsSet.Builder()
+                    .jwtID(jti)
+                    .subject(sub)
+                    .issueTime(Date.from(issuedAt))
+                    .expirationTime(Date.from(expiresAt));
+            if (id != null) builder.claim("id", id);
+            if (username != null) builder.claim("username", username);
+            if (email != null) builder.claim("email", email);
+            if (roles != null) builder.claim("roles", roles);
+            if (sv != null) builder.claim("sv", sv);
+            if (iatMs != null) builder.claim(JwtService.ISSUED_AT_MILLIS_CLAIM, iatMs);
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Holds the signing key and every verification key for access tokens.
+ *
+ * Keys are parsed once at startup, so signers and verifiers are built once per key instead of once per token.
+ * Supported setups:
+ * - HS256 with the shared 'auth.jwt.secret' (no public JWKS; tokens carry no 'kid').
+ * - RS256/ES256 with one or more keys under 'auth.jwt.keys'. The active key signs, all keys verify and are
+ *   published through the JWKS endpoint so resource servers can verify tokens locally.
+ *
+ * If an asymmetric algorithm is selected but no keys are configured an ephemeral key is generated. That is
+ * fine for local development but tokens won't survive a restart or verify across nodes.
+ */
+@Slf4j
+@Component
+public class JwtKeyManager {
+
+    private final JWSAlgorithm signingAlgorithm;
+    private final JWSSigner signer;
+    private final JWSHeader signingHeader;
+
+    // kid -> verifier, and kid -> the only algorithm accepted for that kid (prevents algorithm confusion)
+    private final Map<String, JWSVerifier> verifiersByKid;
+    private final Map<String, JWSAlgorithm> algorithmsByKid;
+
+    // verifies kid-less HS256 tokens (either the HS256 mode itself or tokens issued before switching to RS/ES)
+    private final JWSVerifier legacyMacVerifier;
+    private final byte[] hmacSecret;
+
+    private final String jwksJson;
+    private final String jwksEtag;
+
+    public JwtKeyManager(AuthProperties authProperties) {
+        AuthProperties.Jwt cfg = authProperties.getJwt();
+        this.signingAlgorithm = JWSAlgorithm.parse(cfg.getAlgorithm().trim().toUpperCase());
+
+        this.hmacSecret = hasText(cfg.getSecret()) ? cfg.getSecret().getBytes(StandardCharsets.UTF_8) : null;
+        try {
+            this.legacyMacVerifier = hasText(cfg.getSecret())
+                    ? new MACVerifier(cfg.getSecret().getBytes(StandardCharsets.UTF_8))
+                    : null;
+
+            Map<String, JWSVerifier> verifiers = new LinkedHashMap<>();
+            Map<String, JWSAlgorithm> algorithms = new LinkedHashMap<>();
+            List<JWK> publicJwks = new ArrayList<>();
+
+            if (JWSAlgorithm.HS256.equals(signingAlgorithm)) {
+                if (!hasText(cfg.getSecret())) {
+                    throw new IllegalStateException("auth.jwt.secret is required for HS256");
+                }
+                this.signer = new MACSigner(cfg.getSecret().getBytes(StandardCharsets.UTF_8));
+                this.signingHeader = new JWSHeader.Builder(JWSAlgorithm.HS256).type(JOSEObjectType.JWT).build();
+            } else if (JWSAlgorithm.RS256.equals(signingAlgorithm) || JWSAlgorithm.ES256.equals(signingAlgorithm)) {
+                List<JWK> keys = loadKeys(cfg.getKeys());
+                if (keys.isEmpty()) {
+                    log.warn("No auth.jwt.keys configured for {} - generating an ephemeral signing key (dev only)",
+                            signingAlgorithm);
+                    keys = List.of(generateKey(signingAlgorithm));
+                }
+
+                JWK active = selectActiveKey(keys, cfg.getActiveKeyId());
+                for (JWK jwk : keys) {
+                    verifiers.put(jwk.getKeyID(), verifierFor(jwk));
+                    algorithms.put(jwk.getKeyID(), (JWSAlgorithm) jwk.getAlgorithm());
+                    publicJwks.add(jwk.toPublicJWK());
+                }
+
+                JWSAlgorithm activeAlg = (JWSAlgorithm) active.getAlgorithm();
+                if (!activeAlg.equals(signingAlgorithm)) {
+                    throw new IllegalStateException("Active key '" + active.getKeyID() + "' is " + activeAlg
+                            + " but auth.jwt.algorithm is " + signingAlgorithm);
+                }
+                this.signer = signerFor(active);
+                this.signingHeader = new JWSHeader.Builder(activeAlg)
+                        .keyID(active.getKeyID())
+                        .type(JOSEObjectType.JWT)
+                        .build();
+                log.info("JWT signing with {} kid={} ({} verification key(s))",
+                        activeAlg, active.getKeyID(), keys.size());
+            } else {
+                throw new IllegalStateException("Unsupported auth.jwt.algorithm: " + cfg.getAlgorithm());
+            }
+
+            this.verifiersByKid = Collections.unmodifiableMap(verifiers);
+            this.algorithmsByKid = Collections.unmodifiableMap(algorithms);
+            this.jwksJson = new JWKSet(publicJwks).toString(true);
+            this.jwksEtag = computeEtag(jwksJson);
+        } catch (JOSEException | GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise JWT keys", e);
+        }
+    }
+
+    public JWSSigner getSigner() {
+        return signer;
+    }
+
+    public JWSHeader getSigningHeader() {
+        return signingHeader;
+    }
+
+    public JWSAlgorithm getSigningAlgorithm() {
+        return signingAlgorithm;
+    }
+
+    /**
+     * Resolve the verifier for a token header, or null if the key/algorithm combination is not trusted.
+     */
+    public JWSVerifier verifierFor(JWSHeader header) {
+        String kid = header.getKeyID();
+        if (kid == null) {
+            return JWSAlgorithm.HS256.equals(header.getAlgorithm()) ? legacyMacVerifier : null;
+        }
+        JWSAlgorithm expected = algorithmsByKid.get(kid);
+        if (expected == null || !expected.equals(header.getAlgorithm())) {
+            return null;
+        }
+        return verifiersByKid.get(kid);
+    }
+
+    /**
+     * kid -> algorithm for every asymmetric verification key.
+     */
+    public Map<String, JWSAlgorithm> getAlgorithmsByKid() {
+        return algorithmsByKid;
+    }
+
+    /**
+     * Raw HS256 secret (signing key in HS256 mode, verification key for kid-less tokens), or null if unset.
+     */
+    public byte[] getHmacSecret() {
+        return hmacSecret == null ? null : hmacSecret.clone();
+    }
+
+    /**
+     * Public JWK set (serialized once; keys never change at runtime).
+     */
+    public String getJwksJson() {
+        return jwksJson;
+    }
+
+    /**
+     * Strong ETag for the JWKS document, derived from its content.
+     */
+    public String getJwksEtag() {
+        return jwksEtag;
+    }
+
+    // --- key loading helpers ---
+
+    private static List<JWK> loadKeys(List<AuthProperties.Key> configured) throws GeneralSecurityException {
+        List<JWK> keys = new ArrayList<>();
+        for (AuthProperties.Key k : configured) {
+            if (!hasText(k.getKid()) || !hasText(k.getPublicKey())) {
+                throw new IllegalStateException("Each auth.jwt.keys entry needs a kid and a public-key");
+            }
+            PublicKey publicKey = readPublicKey(k.getPublicKey());
+            PrivateKey privateKey = hasText(k.getPrivateKey())
+                    ? readPrivateKey(k.getPrivateKey(), publicKey.getAlgorithm())
+                    : null;
+
+            if (publicKey instanceof RSAPublicKey rsa) {
+                RSAKey.Builder b = new RSAKey.Builder(rsa)
+                        .keyID(k.getKid())
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(JWSAlgorithm.RS256);
+                if (privateKey != null) b.privateKey(privateKey);
+                keys.add(b.build());
+            } else if (publicKey instanceof ECPublicKey ec) {
+                if (!Curve.P_256.equals(Curve.forECParameterSpec(ec.getParams()))) {
+                    throw new IllegalStateException("ES256 requires a P-256 key (kid=" + k.getKid() + ")");
+                }
+                ECKey.Builder b = new ECKey.Builder(Curve.P_256, ec)
+                        .keyID(k.getKid())
+                        .keyUse(KeyUse.SIGNATURE)
+                        .algorithm(JWSAlgorithm.ES256);
+                if (privateKey != null) b.privateKey(privateKey);
+                keys.add(b.build());
+            } else {
+                throw new IllegalStateException("Unsupported key type for kid=" + k.getKid());
+            }
+        }
+        return keys;
+    }
+
+    private static JWK selectActiveKey(List<JWK> keys, String activeKeyId) {
+        for (JWK jwk : keys) {
+            boolean matches = hasText(activeKeyId) ? activeKeyId.equals(jwk.getKeyID()) : jwk.isPrivate();
+            if (matches) {
+                if (!jwk.isPrivate()) {
+                    throw new IllegalStateException("Active key '" + jwk.getKeyID() + "' has no private-key");
+                }
+                return jwk;
+            }
+        }
+        throw new IllegalStateException("No usable signing key found (auth.jwt.active-key-id=" + activeKeyId + ")");
+    }
+
+    private static JWK generateKey(JWSAlgorithm alg) throws JOSEException {
+        String kid = "ephemeral-" + UUID.randomUUID();
+        if (JWSAlgorithm.ES256.equals(alg)) {
+            return new ECKeyGenerator(Curve.P_256).keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(alg).generate();
+        }
+        return new RSAKeyGenerator(2048).keyID(kid).keyUse(KeyUse.SIGNATURE).algorithm(alg).generate();
+    }
+
+    private static JWSSigner signerFor(JWK jwk) throws JOSEException {
+        if (jwk instanceof RSAKey rsa) return new RSASSASigner(rsa);
+        return new ECDSASigner((ECKey) jwk);
+    }
+
+    private static JWSVerifier verifierFor(JWK jwk) throws JOSEException {
+        if (jwk instanceof RSAKey rsa) return new RSASSAVerifier(rsa.toRSAPublicKey());
+        return new ECDSAVerifier(((ECKey) jwk).toECPublicKey());
+    }
+
+    private static PublicKey readPublicKey(String pem) throws GeneralSecurityException {
+        X509EncodedKeySpec spec = new X509EncodedKeySpec(decodePem(pem));
+        try {
+            return KeyFactory.getInstance("RSA").generatePublic(spec);
+        } catch (GeneralSecurityException notRsa) {
+            return KeyFactory.getInstance("EC").generatePublic(spec);
+        }
+    }
+
+    private static PrivateKey readPrivateKey(String pem, String algorithm) throws GeneralSecurityException {
+        return KeyFactory.getInstance(algorithm).generatePrivate(new PKCS8EncodedKeySpec(decodePem(pem)));
+    }
+
+    private static byte[] decodePem(String pem) {
+        String base64 = pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    private static String computeEtag(String content) throws GeneralSecurityException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+}
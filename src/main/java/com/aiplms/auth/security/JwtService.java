@@ -1,42 +1,52 @@
 package com.aiplms.auth.security;
 
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.entity.Role;
 import com.aiplms.auth.entity.User;
+import com.aiplms.auth.util.TokenUtil;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSVerifier;
-import com.nimbusds.jose.crypto.MACSigner;
-import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 /**
- * Minimal JWT helper for HS256 usage (Step 9/10).
+ * JWT helper for access tokens.
  *
  * Produces tokens (createAccessToken) and validates/parses them (parseAndValidate).
+ * Signing/verification keys (HS256 secret or rotating RS256/ES256 keys) are owned by {@link JwtKeyManager};
+ * tokens signed with an asymmetric key carry a 'kid' header matching the published JWKS.
  *
- * IMPORTANT: In later steps you'll switch to RS256 and JWKS. This implementation is deliberately minimal
- * for Step-9/10's HS256 approach.
+ * Our own tokens go through {@link JwtCodec} when 'auth.jwt.fast-codec-enabled' is set; anything the codec
+ * doesn't recognise is handled by the generic Nimbus path below.
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class JwtService {
 
-    @Value("${auth.jwt.secret}")
-    private String sharedSecret;
+    private final JwtKeyManager keyManager;
+    private final AuthProperties authProperties;
+    private final JwtCodec codec;
 
-    @Value("${auth.jwt.access-token-ttl-seconds:900}")
-    private long accessTokenTtlSeconds;
+    /** Issue time in epoch millis, next to the standard whole-second 'iat'. */
+    static final String ISSUED_AT_MILLIS_CLAIM = "iat_ms";
 
     private static final DateTimeFormatter ISO_FORMAT =
             DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneOffset.UTC);
@@ -66,28 +76,40 @@ public class JwtService {
     }
 
     /**
-     * Create an HS256 signed JWT for the given user.
+     * Create a signed JWT for the given user using the active signing key.
      */
     public AccessToken createAccessToken(User user) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plusSeconds(authProperties.getJwt().getAccessTokenTtlSeconds());
+
+        if (authProperties.getJwt().isFastCodecEnabled()) {
+            // same claims/serialization as the Nimbus path below (JWT dates are whole seconds)
+            String token = codec.encode(UUID.randomUUID().toString(), user.getId(), user.getUsername(),
+                    user.getEmail(), roleNames(user), user.getSecurityVersion(),
+                    now.toEpochMilli(), expiresAt.getEpochSecond());
+            return new AccessToken(token, expiresAt);
+        }
+
         try {
-            Instant now = Instant.now();
-            Instant expiresAt = now.plusSeconds(accessTokenTtlSeconds);
 
             JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                    .jwtID(UUID.randomUUID().toString())
                     .subject(user.getId().toString())
                     .issueTime(Date.from(now))
                     .expirationTime(Date.from(expiresAt))
                     .claim("id", user.getId().toString())
                     .claim("username", user.getUsername())
-                    .claim("email", user.getEmail());
+                    .claim("email", user.getEmail())
+                    // roles + security version let the filter authenticate without loading the user
+                    .claim("roles", roleNames(user))
+                    .claim("sv", user.getSecurityVersion())
+                    // 'iat' is whole seconds; the revocation watermark needs the exact issue time
+                    .claim(ISSUED_AT_MILLIS_CLAIM, now.toEpochMilli());
 
             JWTClaimsSet claimsSet = claims.build();
 
-            com.nimbusds.jose.JWSSigner signer = new MACSigner(sharedSecret.getBytes(StandardCharsets.UTF_8));
-            com.nimbusds.jose.JWSHeader header = new com.nimbusds.jose.JWSHeader(com.nimbusds.jose.JWSAlgorithm.HS256);
-
-            SignedJWT signedJWT = new SignedJWT(header, claimsSet);
-            signedJWT.sign(signer);
+            SignedJWT signedJWT = new SignedJWT(keyManager.getSigningHeader(), claimsSet);
+            signedJWT.sign(keyManager.getSigner());
 
             return new AccessToken(signedJWT.serialize(), expiresAt);
         } catch (JOSEException e) {
@@ -104,7 +126,10 @@ public class JwtService {
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
 
-            JWSVerifier verifier = new MACVerifier(sharedSecret.getBytes(StandardCharsets.UTF_8));
+            JWSVerifier verifier = keyManager.verifierFor(signedJWT.getHeader());
+            if (verifier == null) {
+                throw new JwtValidationException("Unknown JWT signing key or algorithm");
+            }
             boolean verified = signedJWT.verify(verifier);
             if (!verified) {
                 throw new JwtValidationException("Invalid JWT signature");
@@ -126,27 +151,121 @@ public class JwtService {
         }
     }
 
+    /**
+     * Validate the token once and capture everything downstream checks need (claims, revocation key, expiry).
+     * Throws JwtValidationException like {@link #parseAndValidate(String)}.
+     */
+    public ValidatedToken validate(String token) {
+        if (authProperties.getJwt().isFastCodecEnabled()) {
+            ValidatedToken fast = codec.decode(token, System.currentTimeMillis());
+            if (fast != null) {
+                return fast;
+            }
+        }
+
+        JwtClaims claims = parseAndValidate(token);
+        String jti = claims.getClaimAsString("jti");
+        String revocationKey = (jti != null && !jti.isBlank()) ? jti : TokenUtil.sha256Hex(token);
+
+        String id = claims.getClaimAsString("id");
+        UUID userId;
+        try {
+            userId = id == null ? null : UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new JwtValidationException("Invalid id claim", e);
+        }
+
+        List<String> roles = claims.getClaimAsStringList("roles");
+        List<GrantedAuthority> authorities = roles == null ? null : toAuthorities(roles);
+
+        Long issuedAtMillis = claims.getClaimAsLong(ISSUED_AT_MILLIS_CLAIM);
+        Instant issuedAt = issuedAtMillis != null ? Instant.ofEpochMilli(issuedAtMillis) : claims.getIssuedAt();
+        return new ValidatedToken(claims, jti, revocationKey, claims.getExpiresAt(), issuedAt,
+                userId, claims.getClaimAsString("username"), authorities, claims.getClaimAsLong("sv"));
+    }
+
+    static List<GrantedAuthority> toAuthorities(List<String> roles) {
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size());
+        for (String r : roles) {
+            authorities.add(new SimpleGrantedAuthority(r));
+        }
+        return List.copyOf(authorities);
+    }
+
+    private static List<String> roleNames(User user) {
+        if (user.getRoles() == null) {
+            return List.of();
+        }
+        List<String> names = new ArrayList<>(user.getRoles().size());
+        for (Role r : user.getRoles()) {
+            names.add(r.getName());
+        }
+        return names;
+    }
+
     /**
      * Lightweight wrapper around JWTClaimsSet for simpler use.
      */
     public static class JwtClaims {
-        private final JWTClaimsSet inner;
+        // built on first access for tokens decoded by JwtCodec; JWTClaimsSet is immutable so a racy init is fine
+        private JWTClaimsSet inner;
+        private final Supplier<JWTClaimsSet> loader;
 
         JwtClaims(JWTClaimsSet inner) {
             this.inner = inner;
+            this.loader = null;
+        }
+
+        JwtClaims(Supplier<JWTClaimsSet> loader) {
+            this.loader = loader;
+        }
+
+        private JWTClaimsSet inner() {
+            JWTClaimsSet c = inner;
+            if (c == null) {
+                c = loader.get();
+                inner = c;
+            }
+            return c;
         }
 
         public String getClaimAsString(String name) {
-            Object v = inner.getClaim(name);
+            Object v = inner().getClaim(name);
             return v == null ? null : v.toString();
         }
 
+        public List<String> getClaimAsStringList(String name) {
+            try {
+                return inner().getStringListClaim(name);
+            } catch (ParseException e) {
+                throw new JwtValidationException("Invalid '" + name + "' claim", e);
+            }
+        }
+
+        public Long getClaimAsLong(String name) {
+            try {
+                return inner().getLongClaim(name);
+            } catch (ParseException e) {
+                throw new JwtValidationException("Invalid '" + name + "' claim", e);
+            }
+        }
+
         public Map<String, Object> getAllClaims() {
-            return inner.getClaims();
+            return inner().getClaims();
         }
 
         public String getSubject() {
-            return inner.getSubject();
+            return inner().getSubject();
+        }
+
+        public Instant getExpiresAt() {
+            Date exp = inner().getExpirationTime();
+            return exp == null ? null : exp.toInstant();
+        }
+
+        public Instant getIssuedAt() {
+            Date iat = inner().getIssueTime();
+            return iat == null ? null : iat.toInstant();
         }
     }
 }
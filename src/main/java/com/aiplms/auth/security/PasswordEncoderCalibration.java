@@ -0,0 +1,121 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.config.AuthProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Builds the application's DelegatingPasswordEncoder with a cost calibrated to this node.
+ *
+ * Only the algorithm used for new hashes is calibrated: one hash is timed at the minimum cost and the cost is
+ * scaled up to the target hash time (bcrypt doubles per strength step, Argon2id/PBKDF2 scale linearly with
+ * iterations). The other algorithms stay registered at their minimum cost; all three embed their parameters,
+ * so any stored hash verifies regardless of what this node chose. Hashes without an '{id}' prefix are legacy
+ * BCrypt hashes.
+ *
+ * Because upgradeEncoding only flags lower costs, nodes of different sizes converge on the highest cost
+ * rather than re-hashing back and forth.
+ */
+@Slf4j
+public final class PasswordEncoderCalibration {
+
+    static final String BCRYPT = "bcrypt";
+    static final String ARGON2 = "argon2";
+    static final String PBKDF2 = "pbkdf2";
+
+    private static final String CALIBRATION_PASSWORD = "calibration-Password-1";
+    private static final int SAMPLES = 2;
+
+    private PasswordEncoderCalibration() {
+    }
+
+    public static PasswordEncoder create(AuthProperties.Password cfg) {
+        String idForEncode = cfg.getAlgorithm().trim().toLowerCase(Locale.ROOT);
+        long targetNanos = cfg.getTargetHashTime().toNanos();
+        boolean calibrate = cfg.isCalibrate();
+
+        int bcryptStrength = cfg.getBcryptMinStrength();
+        int argon2Iterations = cfg.getArgon2MinIterations();
+        int pbkdf2Iterations = cfg.getPbkdf2MinIterations();
+
+        switch (idForEncode) {
+            case BCRYPT -> {
+                if (calibrate) {
+                    double factor = (double) targetNanos / time(new BCryptPasswordEncoder(bcryptStrength));
+                    int steps = factor > 1 ? (int) Math.floor(Math.log(factor) / Math.log(2)) : 0;
+                    bcryptStrength = clamp(bcryptStrength + steps, cfg.getBcryptMinStrength(),
+                            cfg.getBcryptMaxStrength());
+                }
+                log.info("Password hashing: bcrypt strength={} (calibrated={})", bcryptStrength, calibrate);
+            }
+            case ARGON2 -> {
+                if (calibrate) {
+                    argon2Iterations = scale(argon2Iterations, targetNanos,
+                            i -> argon2(cfg, i), cfg.getArgon2MinIterations(), cfg.getArgon2MaxIterations(), 1);
+                }
+                log.info("Password hashing: argon2id m={}KiB p={} t={} (calibrated={})",
+                        cfg.getArgon2MemoryKib(), cfg.getArgon2Parallelism(), argon2Iterations, calibrate);
+            }
+            case PBKDF2 -> {
+                if (calibrate) {
+                    pbkdf2Iterations = scale(pbkdf2Iterations, targetNanos, Pbkdf2IterationsPasswordEncoder::new,
+                            cfg.getPbkdf2MinIterations(), cfg.getPbkdf2MaxIterations(), 10_000);
+                }
+                log.info("Password hashing: pbkdf2-sha256 iterations={} (calibrated={})", pbkdf2Iterations, calibrate);
+            }
+            default -> throw new IllegalStateException("Unsupported auth.password.algorithm: " + cfg.getAlgorithm());
+        }
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, bcrypt);
+        encoders.put(ARGON2, argon2(cfg, argon2Iterations));
+        encoders.put(PBKDF2, new Pbkdf2IterationsPasswordEncoder(pbkdf2Iterations));
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(idForEncode, encoders);
+        // hashes stored before the '{id}' prefix was introduced are plain BCrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        return delegating;
+    }
+
+    private static Argon2PasswordEncoder argon2(AuthProperties.Password cfg, int iterations) {
+        return new Argon2PasswordEncoder(16, 32, cfg.getArgon2Parallelism(), cfg.getArgon2MemoryKib(), iterations);
+    }
+
+    /**
+     * Scale a linear cost parameter from its minimum so one hash takes about targetNanos.
+     */
+    private static int scale(int min, long targetNanos, IntFunction<PasswordEncoder> encoderFor,
+                             int lower, int upper, int granularity) {
+        double factor = (double) targetNanos / time(encoderFor.apply(min));
+        long scaled = (long) (min * Math.max(1.0, factor));
+        scaled = scaled / granularity * granularity;
+        return clamp((int) Math.min(Integer.MAX_VALUE, scaled), lower, upper);
+    }
+
+    /**
+     * Fastest of a few encodes after one warm-up, in nanoseconds.
+     */
+    private static long time(PasswordEncoder encoder) {
+        encoder.encode(CALIBRATION_PASSWORD);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode(CALIBRATION_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return Math.max(1, best);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
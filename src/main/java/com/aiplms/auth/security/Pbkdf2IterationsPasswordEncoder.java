@@ -0,0 +1,97 @@
+package com.aiplms.auth.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2-HMAC-SHA256 encoder that stores its iteration count in the hash: {@code <iterations>$<salt>$<hash>}.
+ *
+ * Spring's Pbkdf2PasswordEncoder doesn't record the iteration count, so changing it (which calibration does)
+ * would make existing hashes unverifiable. Here every hash is checked with its own count, and
+ * {@link #upgradeEncoding} reports hashes made with fewer iterations than currently configured.
+ */
+public class Pbkdf2IterationsPasswordEncoder implements PasswordEncoder {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final Base64.Encoder B64_ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DECODER = Base64.getDecoder();
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    public Pbkdf2IterationsPasswordEncoder(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(rawPassword, salt, iterations);
+        return iterations + "$" + B64_ENCODER.encodeToString(salt) + "$" + B64_ENCODER.encodeToString(hash);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Parsed parsed = parse(encodedPassword);
+        if (parsed == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(parsed.hash, derive(rawPassword, parsed.salt, parsed.iterations));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        Parsed parsed = parse(encodedPassword);
+        return parsed == null || parsed.iterations < iterations;
+    }
+
+    private static byte[] derive(CharSequence rawPassword, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(rawPassword.toString().toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static Parsed parse(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            if (iterations < 1) {
+                return null;
+            }
+            return new Parsed(iterations, B64_DECODER.decode(parts[1]), B64_DECODER.decode(parts[2]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private record Parsed(int iterations, byte[] salt, byte[] hash) {
+    }
+}
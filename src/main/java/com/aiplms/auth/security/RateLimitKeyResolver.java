@@ -0,0 +1,128 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.util.TokenUtil;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Builds the counter key of a rule for a request: the rule name followed by one part per configured key
+ * dimension. Without a valid bearer token USER falls back to the client IP. A request whose account can't be
+ * read (field missing, body over max-body-bytes, not JSON) shares one unkeyed ACCOUNT bucket per rule: per-IP
+ * buckets there would hand every source of a stuffing campaign a fresh per-account budget just for padding
+ * or malformed bodies.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitKeyResolver {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    static final String UNKEYED_ACCOUNT = "a=?";
+
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtService jwtService;
+
+    public String key(RateLimitRules.Rule rule, HttpServletRequest request, RateLimitRules rules) {
+        StringBuilder key = new StringBuilder(64).append(rule.name);
+        for (AuthProperties.RateLimitKey dimension : rule.keys) {
+            key.append(':');
+            switch (dimension) {
+                case IP -> key.append(clientIp(request, rules));
+                case ROUTE -> key.append(request.getMethod()).append(':').append(request.getRequestURI());
+                case ACCOUNT -> {
+                    String account = account(request, rule.accountField);
+                    if (account != null) {
+                        // hashed: no identifiers in Redis keys
+                        key.append("a=").append(TokenUtil.sha256Hex(account), 0, 32);
+                    } else {
+                        key.append(UNKEYED_ACCOUNT);
+                    }
+                }
+                case USER -> {
+                    String userId = userId(request);
+                    key.append(userId != null ? "u=" + userId : clientIp(request, rules));
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * The peer address, unless the peer is a trusted proxy: then the right-most X-Forwarded-For hop that isn't
+     * one. Hops left of the first untrusted one were written by the client and are ignored.
+     */
+    public String clientIp(HttpServletRequest request, RateLimitRules rules) {
+        String peer = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || forwarded.isBlank() || !rules.isTrustedProxy(peer)) {
+            return peer;
+        }
+        String client = peer;
+        int end = forwarded.length();
+        while (end > 0) {
+            int start = forwarded.lastIndexOf(',', end - 1);
+            String hop = forwarded.substring(start + 1, end).trim();
+            end = Math.max(start, 0);
+            if (hop.isEmpty()) {
+                continue;
+            }
+            client = hop;
+            if (!rules.isTrustedProxy(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private String userId(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            // same cache JwtAuthenticationFilter uses, so the token is still verified only once
+            ValidatedToken token = verifiedTokenCache.get(header.substring(7), jwtService::validate);
+            return token.getUserId() == null ? null : token.getUserId().toString();
+        } catch (Exception ex) {
+            // invalid tokens are rejected by JwtAuthenticationFilter; here they just don't identify a user
+            return null;
+        }
+    }
+
+    private static String account(HttpServletRequest request, String field) {
+        if (!(request instanceof CachedBodyHttpServletRequest cached) || field == null) {
+            return null;
+        }
+        byte[] body = cached.body();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                token = parser.nextToken();
+                if (field.equals(name) && token == JsonToken.VALUE_STRING) {
+                    String value = parser.getText().trim().toLowerCase(Locale.ROOT);
+                    return value.isEmpty() ? null : value;
+                }
+                parser.skipChildren();
+            }
+        } catch (Exception ex) {
+            log.debug("Unreadable body for rate limit account key: {}", ex.getMessage());
+        }
+        return null;
+    }
+}
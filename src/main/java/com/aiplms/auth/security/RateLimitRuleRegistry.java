@@ -0,0 +1,105 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.config.AuthProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.PropertiesPropertySourceLoader;
+import org.springframework.boot.env.PropertySourceLoader;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the compiled rate limit rules and swaps them when auth.rate-limit.rules-file changes.
+ *
+ * The file has the application config layout (auth.rate-limit.rules, .default-rule, .trusted-proxies) and is
+ * bound on top of the application's own configuration, so it only needs what it overrides. It is polled every
+ * auth.rate-limit.reload-interval-ms; a file that doesn't bind or compile is logged and the current rules
+ * stay in force. Mounted ConfigMaps and config management pushes work as they are: no restart, no endpoint.
+ */
+@Component
+@Slf4j
+public class RateLimitRuleRegistry {
+
+    private static final String PREFIX = "auth.rate-limit";
+
+    private final AuthProperties authProperties;
+    private final Environment environment;
+
+    private volatile RateLimitRules rules;
+    private volatile FileTime loadedVersion;
+
+    public RateLimitRuleRegistry(AuthProperties authProperties, Environment environment) {
+        this.authProperties = authProperties;
+        this.environment = environment;
+        // the application's own rules must compile: fail startup rather than run unprotected
+        this.rules = RateLimitRules.compile(authProperties.getRateLimit());
+        reloadIfChanged();
+    }
+
+    public RateLimitRules current() {
+        return rules;
+    }
+
+    @Scheduled(fixedDelayString = "${auth.rate-limit.reload-interval-ms:5000}")
+    public void reloadIfChanged() {
+        String file = authProperties.getRateLimit().getRulesFile();
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        Path path = Path.of(file);
+        FileTime version;
+        try {
+            version = Files.getLastModifiedTime(path);
+        } catch (NoSuchFileException ex) {
+            log.debug("Rate limit rules file {} not found, keeping current rules", path);
+            return;
+        } catch (IOException ex) {
+            log.warn("Cannot read rate limit rules file {}: {}", path, ex.getMessage());
+            return;
+        }
+        if (version.equals(loadedVersion)) {
+            return;
+        }
+        // remembered even on failure: a broken file is reported once, not on every poll
+        loadedVersion = version;
+        try {
+            rules = load(path);
+            log.info("Loaded rate limit rules from {}", path);
+        } catch (Exception ex) {
+            log.error("Rate limit rules file {} rejected, keeping current rules: {}", path, ex.getMessage());
+        }
+    }
+
+    private RateLimitRules load(Path path) throws IOException {
+        PropertySourceLoader loader = path.toString().endsWith(".properties")
+                ? new PropertiesPropertySourceLoader()
+                : new YamlPropertySourceLoader();
+        List<ConfigurationPropertySource> sources = new ArrayList<>();
+        for (PropertySource<?> source : loader.load("rate-limit-rules", new FileSystemResource(path))) {
+            ConfigurationPropertySource converted = ConfigurationPropertySource.from(source);
+            if (converted != null) {
+                sources.add(converted);
+            }
+        }
+        // the file first: it wins wherever it sets a value
+        ConfigurationPropertySources.get(environment).forEach(sources::add);
+        AuthProperties.RateLimit bound = new Binder(sources)
+                .bind(PREFIX, AuthProperties.RateLimit.class)
+                .orElseGet(AuthProperties.RateLimit::new);
+        return RateLimitRules.compile(bound);
+    }
+}
@@ -0,0 +1,261 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.config.AuthProperties;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, compiled form of the auth.rate-limit rules. Built once per configuration change, so the per-request
+ * work is a map lookup for plain paths plus one pass over the pattern rules.
+ */
+public final class RateLimitRules {
+
+    private final Map<String, List<Rule>> exact;
+    private final List<Rule> patterns;
+    private final Rule defaultRule;
+    private final List<Cidr> trustedProxies;
+    private final int maxBodyBytes;
+
+    private RateLimitRules(Map<String, List<Rule>> exact, List<Rule> patterns, Rule defaultRule,
+                           List<Cidr> trustedProxies, int maxBodyBytes) {
+        this.exact = exact;
+        this.patterns = patterns;
+        this.defaultRule = defaultRule;
+        this.trustedProxies = trustedProxies;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a rule is incomplete or a pattern or proxy address doesn't parse
+     */
+    public static RateLimitRules compile(AuthProperties.RateLimit properties) {
+        PathPatternParser parser = new PathPatternParser();
+        Map<String, List<Rule>> exact = new HashMap<>();
+        List<Rule> patterns = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        int order = 0;
+        for (AuthProperties.RateLimitRule source : properties.getRules()) {
+            if (!names.add(source.getName())) {
+                throw new IllegalArgumentException("Duplicate rate limit rule name: " + source.getName());
+            }
+            if (source.getPaths().isEmpty()) {
+                throw new IllegalArgumentException("Rate limit rule '" + source.getName() + "' has no paths");
+            }
+            for (String path : source.getPaths()) {
+                Rule rule = Rule.of(source, order++, parser.parse(path));
+                if (rule.pattern.hasPatternSyntax()) {
+                    patterns.add(rule);
+                } else {
+                    exact.computeIfAbsent(path, p -> new ArrayList<>(1)).add(rule);
+                }
+            }
+        }
+        AuthProperties.RateLimitRule defaultSource = properties.getDefaultRule();
+        String defaultPath = defaultSource.getPaths().isEmpty() ? "/**" : defaultSource.getPaths().get(0);
+        Rule defaultRule = Rule.of(defaultSource, order, parser.parse(defaultPath));
+
+        List<Cidr> proxies = new ArrayList<>();
+        for (String address : properties.getTrustedProxies()) {
+            proxies.add(Cidr.parse(address.trim()));
+        }
+        return new RateLimitRules(exact, patterns, defaultRule, List.copyOf(proxies), properties.getMaxBodyBytes());
+    }
+
+    /**
+     * Rules that apply to the request, in configuration order; the default rule if none does.
+     */
+    public List<Rule> match(String method, String path) {
+        List<Rule> byPath = exact.getOrDefault(path, Collections.emptyList());
+        List<Rule> matched = null;
+        for (Rule rule : byPath) {
+            if (rule.appliesTo(method)) {
+                matched = add(matched, rule);
+            }
+        }
+        if (!patterns.isEmpty()) {
+            PathContainer container = PathContainer.parsePath(path);
+            for (Rule rule : patterns) {
+                if (rule.appliesTo(method) && rule.pattern.matches(container)) {
+                    matched = add(matched, rule);
+                }
+            }
+        }
+        if (matched == null) {
+            return defaultRule.appliesTo(method) && defaultRule.pattern.matches(PathContainer.parsePath(path))
+                    ? List.of(defaultRule) : List.of();
+        }
+        if (matched.size() > 1) {
+            matched.sort((a, b) -> Integer.compare(a.order, b.order));
+        }
+        return matched;
+    }
+
+    public boolean isTrustedProxy(String address) {
+        if (trustedProxies.isEmpty()) {
+            return false;
+        }
+        byte[] bytes = parseLiteral(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (Cidr proxy : trustedProxies) {
+            if (proxy.matches(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the address bytes, or null if it isn't an IP literal; never does a name lookup
+     */
+    static byte[] parseLiteral(String address) {
+        if (!isIpLiteral(address)) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address).getAddress();
+        } catch (UnknownHostException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * IPv4 dotted digits, or anything with a colon (host names can't contain one) made of hex digits.
+     */
+    static boolean isIpLiteral(String address) {
+        if (address == null || address.isEmpty()) {
+            return false;
+        }
+        boolean colon = address.indexOf(':') >= 0;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            boolean ok = (c >= '0' && c <= '9') || c == '.'
+                    || (colon && (c == ':' || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')));
+            if (!ok) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    /**
+     * An address range, IPv4 or IPv6; an address of the other family never matches.
+     */
+    private record Cidr(byte[] network, int prefix) {
+
+        static Cidr parse(String cidr) {
+            int slash = cidr.indexOf('/');
+            byte[] network = parseLiteral(slash < 0 ? cidr : cidr.substring(0, slash));
+            if (network == null) {
+                throw new IllegalArgumentException("Not an IP address or CIDR range: " + cidr);
+            }
+            int prefix = slash < 0 ? network.length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+            if (prefix < 0 || prefix > network.length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+            return new Cidr(network, prefix);
+        }
+
+        boolean matches(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int full = prefix / 8;
+            for (int i = 0; i < full; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int rest = prefix % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - rest)) & 0xFF;
+            return (address[full] & mask) == (network[full] & mask);
+        }
+    }
+
+    private static List<Rule> add(List<Rule> matched, Rule rule) {
+        List<Rule> list = matched == null ? new ArrayList<>(2) : matched;
+        list.add(rule);
+        return list;
+    }
+
+    public static final class Rule {
+        final String name;
+        final int order;
+        final Set<String> methods;
+        final PathPattern pattern;
+        final long limit;
+        final Duration window;
+        final boolean approximate;
+        final List<AuthProperties.RateLimitKey> keys;
+        final String accountField;
+        final boolean failOpen;
+
+        private Rule(String name, int order, Set<String> methods, PathPattern pattern, long limit, Duration window,
+                     boolean approximate, List<AuthProperties.RateLimitKey> keys, String accountField,
+                     boolean failOpen) {
+            this.name = name;
+            this.order = order;
+            this.methods = methods;
+            this.pattern = pattern;
+            this.limit = limit;
+            this.window = window;
+            this.approximate = approximate;
+            this.keys = keys;
+            this.accountField = accountField;
+            this.failOpen = failOpen;
+        }
+
+        static Rule of(AuthProperties.RateLimitRule source, int order, PathPattern pattern) {
+            if (source.getName() == null || source.getName().isBlank()) {
+                throw new IllegalArgumentException("Rate limit rule without a name");
+            }
+            if (source.getLimit() < 1 || source.getWindow() == null || source.getWindow().toMillis() < 1) {
+                throw new IllegalArgumentException("Rate limit rule '" + source.getName()
+                        + "' needs a positive limit and window");
+            }
+            Set<String> methods = new HashSet<>();
+            for (String method : source.getMethods()) {
+                methods.add(method.trim().toUpperCase(Locale.ROOT));
+            }
+            List<AuthProperties.RateLimitKey> keys = source.getKeys().isEmpty()
+                    ? List.of(AuthProperties.RateLimitKey.IP) : List.copyOf(source.getKeys());
+            return new Rule(source.getName(), order, Set.copyOf(methods), pattern, source.getLimit(),
+                    source.getWindow(), source.isApproximate(), keys, source.getAccountField(),
+                    source.isFailOpen());
+        }
+
+        boolean appliesTo(String method) {
+            return methods.isEmpty() || methods.contains(method);
+        }
+
+        boolean needsAccount() {
+            return keys.contains(AuthProperties.RateLimitKey.ACCOUNT);
+        }
+
+        public String getName() { return name; }
+        public long getLimit() { return limit; }
+        public Duration getWindow() { return window; }
+        public boolean isApproximate() { return approximate; }
+    }
+}
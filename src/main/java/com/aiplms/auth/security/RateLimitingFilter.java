@@ -1,33 +1,72 @@
 package com.aiplms.auth.security;
 
+import com.aiplms.auth.service.HybridRateLimitService;
+import com.aiplms.auth.service.LocalRateLimiter;
 import com.aiplms.auth.service.RedisTokenBucketService;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Applies the auth.rate-limit rules (see {@link RateLimitRuleRegistry}) to requests under /api/v1/auth. Every
+ * matching rule is checked and the request must pass all of them; tight rules are decided by Redis per request,
+ * approximate ones are counted locally and synced.
+ *
+ * Responses carry the quota of the most restrictive matched rule: X-RateLimit-Limit, X-RateLimit-Remaining and
+ * X-RateLimit-Reset (seconds until the allowance is full again), plus Retry-After (seconds) on a 429.
+ *
+ * While Redis is unavailable (see RedisCircuitBreaker) a fail-open rule is enforced per node by
+ * {@link LocalRateLimiter}; a fail-closed rule answers 503 (AUTH_ERR_BUSY).
+ *
+ * Metrics, tagged with the rule name:
+ * - auth.ratelimit.requests{outcome=allowed|rejected} (counter)
+ * - auth.ratelimit.redis (timer) - latency of decisions that went to Redis
+ * - auth.ratelimit.fallback{reason=local_keys_full} (counter) - approximate rule decided by Redis because the
+ *   local key table was full
+ * - auth.ratelimit.fallback{reason=redis_unavailable} (counter) - Redis unavailable, rule's policy applied
+ */
 @Component
 @RequiredArgsConstructor
 public class RateLimitingFilter extends OncePerRequestFilter {
 
+    // error bodies are the ErrorResponse layout; only timestamp and path vary, everything else is written as is
+    private static final byte[] BODY_START = "{\"timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_RATE_LIMITED = ("\",\"status\":429,\"errorCode\":\"AUTH_ERR_RATE_LIMIT\","
+            + "\"message\":\"Too many requests\",\"path\":\"").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_UNAVAILABLE = ("\",\"status\":503,\"errorCode\":\"AUTH_ERR_BUSY\","
+            + "\"message\":\"Rate limiting temporarily unavailable\",\"path\":\"").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BODY_END = "\"}".getBytes(StandardCharsets.UTF_8);
+
     private final RedisTokenBucketService bucketService;
+    private final HybridRateLimitService hybridService;
+    private final LocalRateLimiter localLimiter;
+    private final RateLimitRuleRegistry ruleRegistry;
+    private final RateLimitKeyResolver keyResolver;
+    private final MeterRegistry meterRegistry;
 
-    private static final Map<String, Rule> rules = new HashMap<>();
-    static {
-        rules.put("POST:/api/v1/auth/login", new Rule(5, Duration.ofMinutes(1)));
-        rules.put("POST:/api/v1/auth/password-reset/request", new Rule(3, Duration.ofMinutes(15)));
-        rules.put("POST:/api/v1/auth/register", new Rule(10, Duration.ofMinutes(10)));
-        rules.put("DEFAULT_AUTH", new Rule(100, Duration.ofMinutes(1)));
-    }
+    // by rule name; rules are few and come from configuration, so this stays small across reloads
+    private final ConcurrentHashMap<String, RuleMeters> meters = new ConcurrentHashMap<>();
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
@@ -40,38 +79,129 @@ public class RateLimitingFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        String key = buildKey(request);
-        Rule rule = rules.getOrDefault(request.getMethod() + ":" + request.getRequestURI(), rules.get("DEFAULT_AUTH"));
-
-        long remaining = bucketService.tryConsume(key, rule.limit, rule.window);
-        if (remaining >= 0) {
-            response.setHeader("X-RateLimit-Remaining", String.valueOf(remaining));
+        RateLimitRules rules = ruleRegistry.current();
+        List<RateLimitRules.Rule> matched = rules.match(request.getMethod(), request.getRequestURI());
+        if (matched.isEmpty()) {
             filterChain.doFilter(request, response);
-        } else {
-            response.setStatus(429);
-            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-            String body = String.format("{\"timestamp\":\"%s\",\"status\":429,\"errorCode\":\"AUTH_ERR_RATE_LIMIT\",\"message\":\"Too many requests\",\"path\":\"%s\"}",
-                    java.time.OffsetDateTime.now().toString(), request.getRequestURI());
-            response.getWriter().write(body);
+            return;
+        }
+
+        HttpServletRequest req = request;
+        for (RateLimitRules.Rule rule : matched) {
+            if (rule.needsAccount()) {
+                req = new CachedBodyHttpServletRequest(request, rules.getMaxBodyBytes());
+                break;
+            }
         }
-    }
 
-    private String buildKey(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isBlank()) {
-            ip = request.getRemoteAddr();
-        } else {
-            ip = ip.split(",")[0].trim();
+        RateLimitRules.Rule tightestRule = null;
+        RedisTokenBucketService.Decision tightest = null;
+        for (RateLimitRules.Rule rule : matched) {
+            String key = keyResolver.key(rule, req, rules);
+            RuleMeters ruleMeters = meters.computeIfAbsent(rule.name, this::ruleMeters);
+            long started = System.nanoTime();
+            RedisTokenBucketService.Decision decision = rule.approximate
+                    ? hybridService.consume(key, rule.limit, rule.window)
+                    : bucketService.consume(key, rule.limit, rule.window);
+            long nanos = System.nanoTime() - started;
+
+            if (decision.getSource() == RedisTokenBucketService.Decision.Source.UNAVAILABLE) {
+                ruleMeters.redisUnavailable(nanos);
+                if (!rule.failOpen) {
+                    ruleMeters.rejected().increment();
+                    unavailable(request, response);
+                    return;
+                }
+                decision = localLimiter.consume(key, rule.limit, rule.window);
+            }
+            ruleMeters.record(decision, nanos);
+
+            if (!decision.isAllowed()) {
+                reject(request, response, rule, decision);
+                return;
+            }
+            if (tightest == null || decision.getRemaining() < tightest.getRemaining()) {
+                tightestRule = rule;
+                tightest = decision;
+            }
         }
-        return ip + ":" + request.getMethod() + ":" + request.getRequestURI();
+
+        setQuotaHeaders(response, tightestRule, tightest);
+        filterChain.doFilter(req, response);
+    }
+
+    private static void setQuotaHeaders(HttpServletResponse response, RateLimitRules.Rule rule,
+                                        RedisTokenBucketService.Decision decision) {
+        response.setHeader("X-RateLimit-Limit", Long.toString(rule.limit));
+        response.setHeader("X-RateLimit-Remaining", Long.toString(Math.max(0, decision.getRemaining())));
+        response.setHeader("X-RateLimit-Reset", Long.toString(ceilSeconds(decision.getResetAfter())));
+    }
+
+    private static void reject(HttpServletRequest request, HttpServletResponse response, RateLimitRules.Rule rule,
+                               RedisTokenBucketService.Decision decision) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        setQuotaHeaders(response, rule, decision);
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, ceilSeconds(decision.getRetryAfter()))));
+        writeBody(request, response, BODY_RATE_LIMITED);
+    }
+
+    private static void unavailable(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        writeBody(request, response, BODY_UNAVAILABLE);
+    }
+
+    private static void writeBody(HttpServletRequest request, HttpServletResponse response, byte[] middle)
+            throws IOException {
+        byte[] timestamp = OffsetDateTime.now(ZoneOffset.UTC).toString().getBytes(StandardCharsets.UTF_8);
+        byte[] path = JsonStringEncoder.getInstance().quoteAsUTF8(request.getRequestURI());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(BODY_START.length + timestamp.length + middle.length + path.length
+                + BODY_END.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(BODY_START);
+        out.write(timestamp);
+        out.write(middle);
+        out.write(path);
+        out.write(BODY_END);
+    }
+
+    private static long ceilSeconds(Duration duration) {
+        long millis = duration.toMillis();
+        return millis <= 0 ? 0 : (millis + 999) / 1000;
+    }
+
+    private RuleMeters ruleMeters(String rule) {
+        return new RuleMeters(
+                Counter.builder("auth.ratelimit.requests").tag("rule", rule).tag("outcome", "allowed")
+                        .register(meterRegistry),
+                Counter.builder("auth.ratelimit.requests").tag("rule", rule).tag("outcome", "rejected")
+                        .register(meterRegistry),
+                Timer.builder("auth.ratelimit.redis").tag("rule", rule)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("auth.ratelimit.fallback").tag("rule", rule).tag("reason", "local_keys_full")
+                        .register(meterRegistry),
+                Counter.builder("auth.ratelimit.fallback").tag("rule", rule).tag("reason", "redis_unavailable")
+                        .register(meterRegistry));
     }
 
-    static class Rule {
-        final long limit;
-        final Duration window;
-        Rule(long limit, Duration window) {
-            this.limit = limit;
-            this.window = window;
+    private record RuleMeters(Counter allowed, Counter rejected, Timer redis, Counter localKeysFull,
+                              Counter redisUnavailable) {
+
+        void redisUnavailable(long nanos) {
+            redis.record(nanos, TimeUnit.NANOSECONDS);
+            redisUnavailable.increment();
+        }
+
+        void record(RedisTokenBucketService.Decision decision, long nanos) {
+            (decision.isAllowed() ? allowed : rejected).increment();
+            if (decision.getSource() != RedisTokenBucketService.Decision.Source.LOCAL) {
+                redis.record(nanos, TimeUnit.NANOSECONDS);
+            }
+            if (decision.getSource() == RedisTokenBucketService.Decision.Source.LOCAL_KEYS_FULL) {
+                localKeysFull.increment();
+            }
         }
     }
 }
@@ -0,0 +1,57 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.util.BloomFilter;
+
+/**
+ * In-process negative lookup for revoked access tokens.
+ *
+ * Two Bloom filter generations: keys go into the current one, lookups check both, and
+ * {@link #rotate()} drops the older one. Rotating once per access token TTL keeps every key for at
+ * least one full TTL, after which the token it describes has expired anyway.
+ *
+ * Until {@link #markSynced()} is called (i.e. the startup scan of Redis succeeded) the cache can't prove
+ * absence, so {@link #mightBeRevoked(String)} answers true and callers fall through to Redis.
+ */
+public class RevokedTokenNearCache {
+
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+    private volatile boolean synced;
+
+    public RevokedTokenNearCache(long expectedInsertions, double falsePositiveProbability) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.current = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        this.previous = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    public void add(String revocationKey) {
+        current.put(revocationKey);
+    }
+
+    /**
+     * @return false only if the key is definitely not revoked
+     */
+    public boolean mightBeRevoked(String revocationKey) {
+        if (!synced) {
+            return true;
+        }
+        return current.mightContain(revocationKey) || previous.mightContain(revocationKey);
+    }
+
+    public synchronized void rotate() {
+        previous = current;
+        current = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    public void markSynced() {
+        synced = true;
+    }
+
+    public boolean isSynced() {
+        return synced;
+    }
+}
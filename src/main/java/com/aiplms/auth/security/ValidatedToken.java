@@ -0,0 +1,105 @@
+package com.aiplms.auth.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of validating an access token once: verified claims plus the values every later step needs.
+ *
+ * Produced by {@link JwtService#validate(String)} and cached by {@link VerifiedTokenCache}, then handed to the
+ * blacklist check, principal construction and logout so none of them parse or hash the token again.
+ * The filter also exposes it as a request attribute ({@link #REQUEST_ATTRIBUTE}).
+ */
+public final class ValidatedToken {
+
+    public static final String REQUEST_ATTRIBUTE = ValidatedToken.class.getName();
+
+    private final JwtService.JwtClaims claims;
+    private final String jti;
+    private final String revocationKey;
+    private final Instant expiresAt;
+    private final Instant issuedAt;
+    private final UUID userId;
+    private final String username;
+    private final List<GrantedAuthority> authorities;
+    private final Long securityVersion;
+
+    ValidatedToken(JwtService.JwtClaims claims, String jti, String revocationKey, Instant expiresAt,
+                   Instant issuedAt, UUID userId, String username, List<GrantedAuthority> authorities,
+                   Long securityVersion) {
+        this.claims = claims;
+        this.jti = jti;
+        this.revocationKey = revocationKey;
+        this.expiresAt = expiresAt;
+        this.issuedAt = issuedAt;
+        this.userId = userId;
+        this.username = username;
+        this.authorities = authorities;
+        this.securityVersion = securityVersion;
+    }
+
+    public JwtService.JwtClaims getClaims() {
+        return claims;
+    }
+
+    /**
+     * Token id, or null for tokens issued without one.
+     */
+    public String getJti() {
+        return jti;
+    }
+
+    /**
+     * Key identifying this token in the blacklist: the jti, or SHA-256 hex of the token when it has none.
+     */
+    public String getRevocationKey() {
+        return revocationKey;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Issue time: the 'iat_ms' claim when present (millisecond precision), else 'iat'; null if both are missing.
+     */
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    /**
+     * Value of the 'id' claim, or null if missing.
+     */
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Authorities built once from the 'roles' claim; null for tokens issued before roles were embedded.
+     */
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * Value of the 'sv' (user security version) claim; null for tokens issued before it was embedded.
+     */
+    public Long getSecurityVersion() {
+        return securityVersion;
+    }
+
+    /**
+     * True if the token carries everything needed to build the principal without loading the user.
+     */
+    public boolean isSelfContained() {
+        return userId != null && username != null && authorities != null && securityVersion != null
+                && issuedAt != null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of access tokens whose signature and expiry were already checked.
+ *
+ * Clients resend the same JWT for its whole lifetime, so a hit skips parsing and signature verification.
+ * Entries are keyed by the SHA-256 of the compact token (the token itself is never retained) and expire
+ * exactly at the token's 'exp'. Revocation is NOT cached here; callers must still run the blacklist check.
+ *
+ * Metrics (cache.gets{result=hit|miss}, cache.evictions, cache.size) are registered under
+ * cache="jwtVerifiedTokens" and exposed through actuator/prometheus.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    static final String CACHE_NAME = "jwtVerifiedTokens";
+
+    private final boolean enabled;
+    private final Cache<TokenDigest, ValidatedToken> cache;
+
+    public VerifiedTokenCache(AuthProperties authProperties, MeterRegistry meterRegistry) {
+        AuthProperties.VerifiedCache cfg = authProperties.getJwt().getVerifiedCache();
+        this.enabled = cfg.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cfg.getMaximumSize())
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Return the cached validation result for the token, or run the verifier and cache its result.
+     * Exceptions thrown by the verifier propagate and nothing is cached.
+     */
+    public ValidatedToken get(String token, Function<String, ValidatedToken> verifier) {
+        if (!enabled) {
+            return verifier.apply(token);
+        }
+        return cache.get(TokenDigest.of(token), k -> verifier.apply(token));
+    }
+
+    /**
+     * 256-bit token digest packed into longs so the key is cheap to hash and compare.
+     */
+    record TokenDigest(long a, long b, long c, long d) {
+
+        static TokenDigest of(String token) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+                ByteBuffer buf = ByteBuffer.wrap(hash);
+                return new TokenDigest(buf.getLong(), buf.getLong(), buf.getLong(), buf.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<TokenDigest, ValidatedToken> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, ValidatedToken token, long currentTime) {
+            Instant exp = token.getExpiresAt();
+            if (exp == null) {
+                return 0L;
+            }
+            return Math.max(0L, Duration.between(Instant.now(), exp).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, ValidatedToken token, long currentTime,
+                                      long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, ValidatedToken token, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.aiplms.auth.dto.v1.LoginRequestDto;
 import com.aiplms.auth.dto.v1.RegisterRequestDto;
 
 import java.util.Map;
+import java.util.UUID;
 
 public interface AuthService {
     /**
@@ -21,5 +22,13 @@ public interface AuthService {
      */
     Map<String, Object> login(LoginRequestDto request);
 
+    /**
+     * Log the user out everywhere: revoke all live refresh tokens (one UPDATE) and every access token
+     * issued so far (revocation watermark).
+     * @param userId user whose sessions are revoked
+     * @return number of refresh tokens revoked
+     */
+    int revokeAllSessions(UUID userId);
+
 }
 
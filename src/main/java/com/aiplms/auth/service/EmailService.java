@@ -1,8 +1,17 @@
 package com.aiplms.auth.service;
 
 public interface EmailService {
+
+    /**
+     * Outbox event type for queued emails. Payload: {"to", "subject", "body"}.
+     */
+    String OUTBOX_EVENT_TYPE = "EmailRequested_v1";
+
     /**
-     * Send simple plain-text email.
+     * Queue a simple plain-text email.
+     *
+     * The email is written to the outbox in the caller's transaction and delivered by the mail worker after
+     * commit, so it is sent only if the transaction commits and the caller never waits on SMTP.
      */
     void send(String to, String subject, String body);
 }
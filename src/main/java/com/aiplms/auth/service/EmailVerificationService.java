@@ -10,6 +10,12 @@ public interface EmailVerificationService {
      */
     String createAndSendToken(User user);
 
+    /**
+     * Same as {@link #createAndSendToken(User)} for a user created in the current transaction, who can't have
+     * earlier tokens to remove.
+     */
+    String createAndSendInitialToken(User newUser);
+
     /**
      * Verify a token (plain token provided by user).
      *
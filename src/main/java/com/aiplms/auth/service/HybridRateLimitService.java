@@ -0,0 +1,184 @@
+package com.aiplms.auth.service;
+
+import com.aiplms.auth.config.AuthProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate rate limiting for loose rules, without a Redis call per request.
+ *
+ * Each node counts requests per client key and fixed window (aligned to the epoch, so all nodes agree on
+ * window boundaries) in memory. {@link #sync()} pushes the local counts to Redis with one pipelined
+ * INCRBY + PEXPIRE per active key, under rlh:{key}:{window}. Each INCRBY returns the cluster-wide total, which
+ * becomes the node's view of the window. A request is admitted while that total plus the node's unsynced
+ * requests is under the limit.
+ *
+ * Other nodes' requests are only seen at the next sync, so a window can overshoot its limit by what the other
+ * nodes admit within one sync interval. Use {@link RedisTokenBucketService} for rules where that matters
+ * (login, password reset).
+ */
+@Service
+@Slf4j
+public class HybridRateLimitService {
+
+    static final String KEY_PREFIX = "rlh:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisTokenBucketService strict;
+    private final AuthProperties.RateLimit properties;
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public HybridRateLimitService(StringRedisTemplate redisTemplate,
+                                  RedisTokenBucketService strict,
+                                  AuthProperties authProperties,
+                                  RedisCircuitBreaker circuitBreaker) {
+        this.redisTemplate = redisTemplate;
+        this.strict = strict;
+        this.properties = authProperties.getRateLimit();
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Same contract as {@link RedisTokenBucketService#tryConsume}.
+     *
+     * @return remaining requests, or -1 if the request is over the limit
+     */
+    public long tryConsume(String key, long limit, Duration window) {
+        RedisTokenBucketService.Decision decision = consume(key, limit, window);
+        return decision.isAllowed() ? decision.getRemaining() : -1;
+    }
+
+    public RedisTokenBucketService.Decision consume(String key, long limit, Duration window) {
+        if (!properties.isHybridEnabled()) {
+            return strict.consume(key, limit, window);
+        }
+        long windowMs = Math.max(1, window.toMillis());
+        long now = System.currentTimeMillis();
+        long index = now / windowMs;
+        String redisKey = KEY_PREFIX + key + ':' + index;
+
+        Window w = windows.get(redisKey);
+        if (w == null) {
+            if (windows.size() >= properties.getMaxLocalKeys()) {
+                RedisTokenBucketService.Decision decision = strict.consume(key, limit, window);
+                return decision.getSource() == RedisTokenBucketService.Decision.Source.UNAVAILABLE
+                        ? decision : decision.withSource(RedisTokenBucketService.Decision.Source.LOCAL_KEYS_FULL);
+            }
+            w = windows.computeIfAbsent(redisKey, k -> new Window(k, (index + 1) * windowMs));
+        }
+
+        Duration resetAfter = Duration.ofMillis(w.end - now);
+        long used = w.remote + w.inFlight.get() + w.pending.sum();
+        if (used >= limit) {
+            return new RedisTokenBucketService.Decision(false, 0, resetAfter, resetAfter,
+                    RedisTokenBucketService.Decision.Source.LOCAL);
+        }
+        w.pending.increment();
+        w.touched = true;
+        return new RedisTokenBucketService.Decision(true, limit - used - 1, Duration.ZERO, resetAfter,
+                RedisTokenBucketService.Decision.Source.LOCAL);
+    }
+
+    /**
+     * Push local counts to Redis and refresh the cluster-wide totals; drop windows that have ended.
+     */
+    @Scheduled(fixedDelayString = "${auth.rate-limit.sync-interval-ms:1000}")
+    public void sync() {
+        if (windows.isEmpty()) {
+            return;
+        }
+        // Redis is known to be down: keep counting locally, the counts are pushed once it's back
+        boolean redisDown = circuitBreaker.isOpen();
+        long now = System.currentTimeMillis();
+        List<Window> batch = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        for (Window w : windows.values()) {
+            if (now >= w.end) {
+                // nobody reads a finished window's count any more
+                windows.remove(w.redisKey, w);
+                continue;
+            }
+            if (!w.touched || redisDown) {
+                continue;
+            }
+            w.touched = false;
+            long delta = w.pending.sumThenReset();
+            w.inFlight.addAndGet(delta);
+            batch.add(w);
+            deltas.add(delta);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    Window w = batch.get(i);
+                    byte[] rawKey = w.redisKey.getBytes(StandardCharsets.UTF_8);
+                    incrementWithExpiry(connection, rawKey, deltas.get(i), w.end - now);
+                }
+                return null;
+            });
+        } catch (Exception ex) {
+            log.warn("Rate limit sync of {} key(s) failed, keeping local counts: {}", batch.size(), ex.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                Window w = batch.get(i);
+                w.pending.add(deltas.get(i));
+                w.inFlight.addAndGet(-deltas.get(i));
+                w.touched = true;
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Window w = batch.get(i);
+            Object total = results.get(2 * i);
+            if (total instanceof Number n) {
+                w.remote = n.longValue();
+            } else {
+                w.remote += deltas.get(i);
+            }
+            w.inFlight.addAndGet(-deltas.get(i));
+        }
+        log.trace("Synced {} rate limit key(s)", batch.size());
+    }
+
+    private static void incrementWithExpiry(RedisConnection connection, byte[] rawKey, long delta, long ttlMs) {
+        connection.stringCommands().incrBy(rawKey, delta);
+        connection.keyCommands().pExpire(rawKey, Math.max(1, ttlMs));
+    }
+
+    /**
+     * Counts of one client key in one window. remote is the cluster-wide total as of the last sync (this
+     * node's synced requests included), inFlight what is being pushed right now, pending what hasn't been.
+     */
+    private static final class Window {
+        final String redisKey;
+        final long end;
+        final LongAdder pending = new LongAdder();
+        final AtomicLong inFlight = new AtomicLong();
+        volatile long remote;
+        volatile boolean touched;
+
+        Window(String redisKey, long end) {
+            this.redisKey = redisKey;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.aiplms.auth.service;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-process GCRA, the same algorithm as {@link RedisTokenBucketService} with the TAT kept in a bounded local
+ * cache instead of Redis. Used for fail-open rules while Redis is unavailable, so limits are enforced per node.
+ *
+ * An entry expires when its key is back to a full allowance, like the Redis key's PX; beyond
+ * auth.rate-limit.max-local-keys the least recently used keys are dropped, which only ever makes the
+ * limiter more lenient.
+ */
+@Component
+public class LocalRateLimiter {
+
+    private final Cache<String, Long> tats;
+
+    public LocalRateLimiter(AuthProperties authProperties) {
+        this.tats = Caffeine.newBuilder()
+                .maximumSize(authProperties.getRateLimit().getMaxLocalKeys())
+                .expireAfter(new Expiry<String, Long>() {
+                    @Override
+                    public long expireAfterCreate(String key, Long tat, long currentTime) {
+                        return Math.max(0, tat - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Long tat, long currentTime, long currentDuration) {
+                        return Math.max(0, tat - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Long tat, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public RedisTokenBucketService.Decision consume(String key, long limit, Duration window) {
+        long period = window.toNanos();
+        long interval = Math.max(1, period / limit);
+        // Caffeine's default ticker is System.nanoTime, so TATs double as expiry times
+        long now = System.nanoTime();
+        RedisTokenBucketService.Decision[] decision = new RedisTokenBucketService.Decision[1];
+        tats.asMap().compute(key, (k, stored) -> {
+            long tat = stored == null || stored - now < 0 ? now : stored;
+            long newTat = tat + interval;
+            long allowAt = newTat - period;
+            if (allowAt - now > 0) {
+                decision[0] = new RedisTokenBucketService.Decision(false, 0, Duration.ofNanos(allowAt - now),
+                        Duration.ofNanos(tat - now), RedisTokenBucketService.Decision.Source.LOCAL);
+                return stored;
+            }
+            decision[0] = new RedisTokenBucketService.Decision(true, (now - allowAt) / interval, Duration.ZERO,
+                    Duration.ofNanos(newTat - now), RedisTokenBucketService.Decision.Source.LOCAL);
+            return newTat;
+        });
+        return decision[0];
+    }
+}
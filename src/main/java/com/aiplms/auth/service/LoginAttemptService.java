@@ -0,0 +1,32 @@
+package com.aiplms.auth.service;
+
+import com.aiplms.auth.entity.User;
+
+import java.time.Instant;
+
+/**
+ * Failed-login counting and account lockout, kept out of the users table on the request path.
+ *
+ * Counters and the lock live in Redis (atomic increment with TTLs); only the lock itself is written back to
+ * Postgres, asynchronously and in batches, so a brute-force run costs at most one users UPDATE per lockout
+ * instead of one per guess.
+ */
+public interface LoginAttemptService {
+
+    /**
+     * @return the instant until which the user is locked out, or null if not locked
+     */
+    Instant lockedUntil(User user);
+
+    /**
+     * Record a wrong password.
+     *
+     * @return the lock expiry if this attempt locked the account, otherwise null
+     */
+    Instant recordFailure(User user);
+
+    /**
+     * Record a successful login, clearing the failure counter.
+     */
+    void recordSuccess(User user);
+}
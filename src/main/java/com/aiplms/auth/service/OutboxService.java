@@ -1,7 +1,11 @@
 package com.aiplms.auth.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import java.util.UUID;
 
 public interface OutboxService {
     void saveEvent(String aggregateType, UUID aggregateId, String type, String payload);
+
+    void saveEvent(String aggregateType, UUID aggregateId, String type, JsonNode payload);
 }
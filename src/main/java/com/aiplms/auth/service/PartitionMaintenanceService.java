@@ -0,0 +1,15 @@
+package com.aiplms.auth.service;
+
+/**
+ * Keeps the range-partitioned tables (refresh_tokens by created_at, outbox by occurred_at) usable and bounded.
+ *
+ * Partitions are created ahead of time so inserts always have a target, and a partition is dropped as a whole
+ * once every row in it is past retention - retention costs a catalog operation instead of row deletes.
+ */
+public interface PartitionMaintenanceService {
+
+    /**
+     * Create missing partitions up to the configured horizon and drop expired ones.
+     */
+    void maintain();
+}
@@ -0,0 +1,20 @@
+package com.aiplms.auth.service;
+
+import java.util.Map;
+
+/**
+ * Deletes rows that are past their retention: expired refresh, email verification and password reset tokens,
+ * and processed outbox rows.
+ *
+ * Deletes run in small chunks, each its own short transaction, walking each table in time order, and the
+ * purge backs off when chunks get slow, so it never holds long locks or produces WAL bursts.
+ */
+public interface PurgeService {
+
+    /**
+     * Purge every table once, within the configured time budget per table.
+     *
+     * @return rows deleted per table
+     */
+    Map<String, Long> purgeExpired();
+}
@@ -0,0 +1,121 @@
+package com.aiplms.auth.service;
+
+import com.aiplms.auth.config.AuthProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker shared by the Redis calls made on the request path (rate limiting, blacklist lookups).
+ *
+ * After auth.redis.failure-threshold consecutive failures the breaker opens and calls go straight to their
+ * fallback for auth.redis.open-duration. Then a single trial call is let through (half-open): success closes the
+ * breaker, failure opens it again. Together with the client timeouts in RedisConfig, an unavailable Redis
+ * costs at most one command timeout per request until the breaker opens, and nothing after.
+ *
+ * Metrics:
+ * - auth.redis.breaker.state (gauge) - 0 closed, 1 open, 2 half-open
+ * - auth.redis.breaker.calls{outcome=failure|short_circuited} (counter)
+ */
+@Component
+@Slf4j
+public class RedisCircuitBreaker {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final Counter failures;
+    private final Counter shortCircuited;
+
+    public RedisCircuitBreaker(AuthProperties authProperties, MeterRegistry meterRegistry) {
+        AuthProperties.Redis cfg = authProperties.getRedis();
+        this.failureThreshold = Math.max(1, cfg.getFailureThreshold());
+        this.openNanos = cfg.getOpenDuration().toNanos();
+        this.failures = Counter.builder("auth.redis.breaker.calls").tag("outcome", "failure")
+                .register(meterRegistry);
+        this.shortCircuited = Counter.builder("auth.redis.breaker.calls").tag("outcome", "short_circuited")
+                .register(meterRegistry);
+        Gauge.builder("auth.redis.breaker.state", state, s -> s.get().ordinal())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run a Redis call, or its fallback if the breaker is open or the call fails.
+     */
+    public <T> T call(Supplier<T> redisCall, Supplier<T> fallback) {
+        if (!tryAcquire()) {
+            shortCircuited.increment();
+            return fallback.get();
+        }
+        T result;
+        try {
+            result = redisCall.get();
+        } catch (RuntimeException ex) {
+            onFailure(ex);
+            return fallback.get();
+        }
+        onSuccess();
+        return result;
+    }
+
+    /**
+     * @return true while calls are being skipped; for background work that can simply wait for Redis
+     */
+    public boolean isOpen() {
+        return state.get() != State.CLOSED;
+    }
+
+    private boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        // exactly one caller gets the trial call; everyone else keeps using the fallback until it's decided
+        return current == State.OPEN
+                && System.nanoTime() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void onSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        if (state.get() != State.CLOSED && state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Redis circuit breaker closed, Redis calls resumed");
+        }
+    }
+
+    private void onFailure(RuntimeException ex) {
+        failures.increment();
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            // openedAt before the state: a caller that sees OPEN must see the new time
+            openedAt = System.nanoTime();
+            if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                log.warn("Redis trial call failed, circuit breaker stays open: {}", ex.getMessage());
+            }
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && current == State.CLOSED) {
+            openedAt = System.nanoTime();
+            if (state.compareAndSet(State.CLOSED, State.OPEN)) {
+                log.warn("Redis circuit breaker opened after {} consecutive failures, using fallbacks for {} ms: {}",
+                        failureThreshold, openNanos / 1_000_000, ex.getMessage());
+            }
+        } else {
+            log.debug("Redis call failed: {}", ex.getMessage());
+        }
+    }
+}
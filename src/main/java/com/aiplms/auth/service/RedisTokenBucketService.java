@@ -2,33 +2,128 @@ package com.aiplms.auth.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.util.Objects;
+import java.util.List;
 
+/**
+ * Rate limiting with GCRA (generic cell rate algorithm): a limit of n per window admits one request every
+ * window / n, with bursts of up to n. Per key Redis holds a single value, the theoretical arrival time (TAT)
+ * of the next request, under rl:{key}, expiring when the key is back to a full allowance.
+ *
+ * The decision is one Lua script: read TAT, decide, write TAT with its TTL. It runs atomically in one round
+ * trip (EVALSHA, falling back to EVAL once per connection if Redis doesn't have the script cached), so there
+ * is no window in which a key exists without TTL, and unlike a fixed window it never admits 2n requests
+ * around a window edge.
+ *
+ * Calls go through {@link RedisCircuitBreaker}; when Redis is unavailable the decision has source UNAVAILABLE
+ * and the caller applies the rule's fail-open/fail-closed policy.
+ */
 @Service
 @RequiredArgsConstructor
 public class RedisTokenBucketService {
 
+    static final String KEY_PREFIX = "rl:";
+
+    // KEYS[1]=tat key; ARGV[1]=window us, ARGV[2]=limit
+    // returns {allowed (1/0), remaining, retryAfterMs (0 if allowed), resetAfterMs}
+    private static final RedisScript<List> GCRA = new DefaultRedisScript<>("""
+            local period = tonumber(ARGV[1])
+            local limit = tonumber(ARGV[2])
+            local interval = period / limit
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000000 + tonumber(t[2])
+            local tat = tonumber(redis.call('GET', KEYS[1]))
+            if tat == nil or tat < now then tat = now end
+            local newTat = tat + interval
+            local allowAt = newTat - period
+            if now < allowAt then
+              return {0, 0, math.ceil((allowAt - now) / 1000), math.ceil((tat - now) / 1000)}
+            end
+            -- at very high limits the interval can be below the precision of now; keep PX valid
+            local ttl = math.max(1, math.ceil((newTat - now) / 1000))
+            redis.call('SET', KEYS[1], string.format('%.0f', newTat), 'PX', ttl)
+            return {1, math.floor((now - allowAt) / interval), 0, ttl}
+            """, List.class);
+
     private final StringRedisTemplate redisTemplate;
+    private final RedisCircuitBreaker circuitBreaker;
 
+    /**
+     * Take one request from the key's allowance.
+     *
+     * @return remaining requests, or -1 if the request is over the limit or Redis is unavailable
+     */
     public long tryConsume(String key, long limit, Duration window) {
-        String k = "rl:" + key;
-
-        Long current = redisTemplate.execute((connection) -> {
-            byte[] rawKey = k.getBytes();
-            Long val = connection.incr(rawKey);
-            if (val != null && val == 1L) {
-                connection.pExpire(rawKey, window.toMillis());
-            }
-            return val;
-        }, true);
-
-        if (current == null) return -1;
-        if (current <= limit) {
-            return limit - current;
+        Decision decision = consume(key, limit, window);
+        return decision.isAllowed() ? decision.getRemaining() : -1;
+    }
+
+    /**
+     * Take one request from the key's allowance and report the quota state along with the decision.
+     */
+    public Decision consume(String key, long limit, Duration window) {
+        return circuitBreaker.call(() -> evaluate(key, limit, window),
+                () -> new Decision(false, 0, Duration.ZERO, Duration.ZERO, Decision.Source.UNAVAILABLE));
+    }
+
+    private Decision evaluate(String key, long limit, Duration window) {
+        List<?> result = redisTemplate.execute(GCRA, List.of(KEY_PREFIX + key),
+                Long.toString(window.toNanos() / 1000), Long.toString(limit));
+        if (result == null || result.size() < 4) {
+            return new Decision(false, 0, window, window);
         }
-        return -1;
+        return new Decision(
+                ((Number) result.get(0)).longValue() == 1L,
+                ((Number) result.get(1)).longValue(),
+                Duration.ofMillis(((Number) result.get(2)).longValue()),
+                Duration.ofMillis(((Number) result.get(3)).longValue()));
+    }
+
+    public static final class Decision {
+
+        /**
+         * What decided: Redis, the node's local counters, Redis because the local key table was full, or
+         * nothing because Redis is unavailable (not a real decision; allowed is false).
+         */
+        public enum Source { REDIS, LOCAL, LOCAL_KEYS_FULL, UNAVAILABLE }
+
+        private final boolean allowed;
+        private final long remaining;
+        private final Duration retryAfter;
+        private final Duration resetAfter;
+        private final Source source;
+
+        public Decision(boolean allowed, long remaining, Duration retryAfter, Duration resetAfter) {
+            this(allowed, remaining, retryAfter, resetAfter, Source.REDIS);
+        }
+
+        public Decision(boolean allowed, long remaining, Duration retryAfter, Duration resetAfter, Source source) {
+            this.allowed = allowed;
+            this.remaining = remaining;
+            this.retryAfter = retryAfter;
+            this.resetAfter = resetAfter;
+            this.source = source;
+        }
+
+        public Decision withSource(Source source) {
+            return new Decision(allowed, remaining, retryAfter, resetAfter, source);
+        }
+
+        public boolean isAllowed() { return allowed; }
+
+        /** Requests that could still be made right now. */
+        public long getRemaining() { return remaining; }
+
+        /** When a rejected request may be retried; zero if allowed. */
+        public Duration getRetryAfter() { return retryAfter; }
+
+        /** When the key is back to its full allowance. */
+        public Duration getResetAfter() { return resetAfter; }
+
+        public Source getSource() { return source; }
     }
 }
@@ -5,12 +5,15 @@ import com.aiplms.auth.entity.User;
 
 import java.time.Instant;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Responsible for creating and managing refresh tokens.
  *
- * The service returns the plain opaque token string on creation (for the client).
- * The persisted entity will contain only the hashed token.
+ * Tokens are "selector.verifier": the selector is the row's id (22 Base64 URL-safe chars) and the verifier
+ * 32 random bytes, of which only the SHA-256 is stored. Lookups go by primary key and the verifier is
+ * checked against the stored hash. Opaque tokens without a selector (issued before this format) are still
+ * accepted by hash while auth.legacy-refresh-tokens-enabled is on.
  */
 public interface RefreshTokenService {
 
@@ -22,10 +25,33 @@ public interface RefreshTokenService {
      */
     CreateResult createForUser(User user, Instant expiresAt);
 
-    Optional<RefreshToken> findByHash(String tokenHash);
+    /**
+     * Find the stored token the client presented, whether revoked or not.
+     *
+     * @return empty if the token is unknown, malformed or its verifier doesn't match
+     */
+    Optional<RefreshToken> findByToken(String presentedToken);
 
     void revoke(RefreshToken token);
 
+    /**
+     * Revoke every live refresh token of the user with a single set-based UPDATE.
+     *
+     * @return number of tokens revoked
+     */
+    int revokeAllForUser(UUID userId);
+
+    /**
+     * Rotate a refresh token: revoke the presented token and issue its successor as one atomic step, so two
+     * concurrent refreshes with the same token can't both succeed.
+     *
+     * @param presentedToken the token the client presented
+     * @param expiresAt      expiry of the successor
+     * @return the successor's plain token and the owning user (roles loaded)
+     * @throws com.aiplms.auth.exception.BaseException unauthorized if the token is unknown, revoked or expired
+     */
+    RotateResult rotate(String presentedToken, Instant expiresAt);
+
     class CreateResult {
         private final String plainToken;
         private final RefreshToken entity;
@@ -38,4 +64,17 @@ public interface RefreshTokenService {
         public String getPlainToken() { return plainToken; }
         public RefreshToken getEntity() { return entity; }
     }
+
+    class RotateResult {
+        private final String plainToken;
+        private final User user;
+
+        public RotateResult(String plainToken, User user) {
+            this.plainToken = plainToken;
+            this.user = user;
+        }
+
+        public String getPlainToken() { return plainToken; }
+        public User getUser() { return user; }
+    }
 }
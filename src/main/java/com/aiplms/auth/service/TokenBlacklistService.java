@@ -1,10 +1,20 @@
 package com.aiplms.auth.service;
 
+import com.aiplms.auth.security.ValidatedToken;
+
 public interface TokenBlacklistService {
 
     /**
-     * Blacklist access token string (store an entry in Redis).
-     * If the token contains a jti, the jti will be used as key, otherwise fallback to sha256(token).
+     * Blacklist an already validated access token (store an entry in Redis until the token expires).
+     * The key is the token's revocation key: its jti, or sha256(token) when it has none.
+     *
+     * @param token validated token (must be non-null)
+     */
+    void blacklistAccessToken(ValidatedToken token);
+
+    /**
+     * Blacklist access token string. Validates the token first; prefer the ValidatedToken overload
+     * when the token was already validated on this request.
      *
      * @param jwt the raw JWT string (must be non-null)
      * @throws IllegalArgumentException if jwt is null/blank
@@ -12,10 +22,10 @@ public interface TokenBlacklistService {
     void blacklistAccessToken(String jwt);
 
     /**
-     * Check whether a token is blacklisted.
+     * Check whether a validated token is blacklisted.
      *
-     * @param jwt the raw JWT string
+     * @param token validated token
      * @return true if blacklisted
      */
-    boolean isBlacklisted(String jwt);
+    boolean isBlacklisted(ValidatedToken token);
 }
@@ -0,0 +1,39 @@
+package com.aiplms.auth.service;
+
+import com.aiplms.auth.entity.User;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Per-user access token revocation that does not touch Postgres on the request path.
+ *
+ * Two independent checks, both stored in one small Redis hash per user and cached locally:
+ * - security version: tokens carry the user's version ('sv' claim); bumping it rejects every token
+ *   issued with an older version.
+ * - revocation watermark: every token issued before the watermark (millisecond 'iat_ms' claim) is
+ *   rejected, which is how "log out everywhere" costs a single write regardless of how many tokens exist.
+ */
+public interface UserRevocationService {
+
+    /**
+     * @param userId          user id from the token
+     * @param securityVersion 'sv' claim from the token
+     * @param issuedAt        issue time from the token, millisecond precision when it carries 'iat_ms'
+     * @return true if the token has been revoked for the user
+     */
+    boolean isRevoked(UUID userId, long securityVersion, Instant issuedAt);
+
+    /**
+     * Increment the user's security version on the entity, so the caller's save writes it in the same UPDATE
+     * as the change that prompted it, and raise the minimum accepted version in Redis after the surrounding
+     * transaction commits.
+     */
+    void bumpSecurityVersion(User user);
+
+    /**
+     * Reject every access token issued for the user up to now. Redis is updated after the surrounding
+     * transaction commits (immediately when there is none).
+     */
+    void revokeAllAccessTokens(UUID userId);
+}
@@ -5,26 +5,33 @@ import com.aiplms.auth.dto.v1.LoginRequestDto;
 import com.aiplms.auth.dto.v1.RegisterRequestDto;
 import com.aiplms.auth.entity.Role;
 import com.aiplms.auth.entity.User;
+import com.aiplms.auth.exception.BaseException;
 import com.aiplms.auth.exception.Exceptions;
 import com.aiplms.auth.repository.RoleRepository;
 import com.aiplms.auth.repository.UserRepository;
 import com.aiplms.auth.security.JwtService;
 import com.aiplms.auth.service.AuthService;
 import com.aiplms.auth.service.EmailVerificationService;
+import com.aiplms.auth.service.LoginAttemptService;
 import com.aiplms.auth.service.OutboxService;
 import com.aiplms.auth.service.RefreshTokenService;
+import com.aiplms.auth.service.UserRevocationService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AuthServiceImpl implements AuthService {
@@ -37,6 +44,12 @@ public class AuthServiceImpl implements AuthService {
     private final AuthProperties authProperties;
     private final EmailVerificationService emailVerificationService;
     private final OutboxService outboxService;
+    private final LoginAttemptService loginAttemptService;
+    private final UserRevocationService userRevocationService;
+
+    private static final String DEFAULT_ROLE = "ROLE_USER";
+
+    private volatile Role defaultRole;
 
 
     @Override
@@ -51,33 +64,34 @@ public class AuthServiceImpl implements AuthService {
             throw Exceptions.badRequest("Password and passwordConfirm do not match");
         }
 
-        // uniqueness checks: rely on repository helper methods
-        if (userRepository.existsByEmail(email) || userRepository.existsByUsername(username)) {
-            // keep message generic, but include detail for logs if needed
-            throw Exceptions.userAlreadyExists("email or username already exists");
-        }
-
-
         // Map DTO -> entity (set only fields we know exist)
         User user = new User();
         user.setEmail(email);
         user.setUsername(username);
         user.setPassword(passwordEncoder.encode(request.getPassword()));
 
-        Role role = roleRepository.findByNameIgnoreCase("ROLE_USER")
-                .orElseThrow(() -> Exceptions.internal("Default role ROLE_USER not present"));
-
         if (user.getRoles() == null) {
             user.setRoles(new HashSet<>());
         }
-        user.getRoles().add(role);
+        user.getRoles().add(defaultRole());
 
         // try to set createdAt if field exists in entity
         try {
             user.setCreatedAt(OffsetDateTime.now().toInstant());
         } catch (Throwable ignored) {}
 
-        User saved = userRepository.save(user);
+        // uniqueness is enforced by ux_users_email / ux_users_username (both on LOWER()); insert now so a
+        // duplicate surfaces here instead of paying for separate exists() round trips that can race anyway
+        User saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException ex) {
+            if (isUniqueViolation(ex, "ux_users_email", "ux_users_username")) {
+                // keep message generic, but include detail for logs if needed
+                throw Exceptions.userAlreadyExists("email or username already exists");
+            }
+            throw ex;
+        }
 
         // write outbox event for user created (transactional outbox)
         try {
@@ -93,7 +107,7 @@ public class AuthServiceImpl implements AuthService {
         }
 
         // create verification token & send email
-        String verificationToken = emailVerificationService.createAndSendToken(saved);
+        String verificationToken = emailVerificationService.createAndSendInitialToken(saved);
 
         Map<String, Object> data = new HashMap<>();
 
@@ -114,11 +128,36 @@ public class AuthServiceImpl implements AuthService {
         return data;
     }
 
+    /**
+     * ROLE_USER is seeded by migration and never changes at runtime, so it's looked up once. Registrations get
+     * a fresh detached instance carrying only id and name: enough for the user_roles insert and the access
+     * token, without a roles select per registration.
+     */
+    private Role defaultRole() {
+        Role cached = defaultRole;
+        if (cached == null) {
+            cached = roleRepository.findByNameIgnoreCase(DEFAULT_ROLE)
+                    .orElseThrow(() -> Exceptions.internal("Default role " + DEFAULT_ROLE + " not present"));
+            defaultRole = cached;
+        }
+        return Role.builder().id(cached.getId()).name(cached.getName()).build();
+    }
+
+    private static boolean isUniqueViolation(DataIntegrityViolationException ex, String... constraints) {
+        if (ex.getCause() instanceof ConstraintViolationException cve && cve.getConstraintName() != null) {
+            for (String constraint : constraints) {
+                if (constraint.equalsIgnoreCase(cve.getConstraintName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public Map<String, Object> login(LoginRequestDto request) {
-        // find by username or email
-        User user = userRepository.findByUsernameIgnoreCase(request.getUsernameOrEmail())
-                .or(() -> userRepository.findByEmailIgnoreCase(request.getUsernameOrEmail()))
+        // find by username or email (single query, roles fetched with it)
+        User user = userRepository.findByUsernameOrEmail(request.getUsernameOrEmail())
                 .orElseThrow(() -> Exceptions.unauthorized("Invalid credentials"));
 
         // check enabled
@@ -131,9 +170,9 @@ public class AuthServiceImpl implements AuthService {
             throw Exceptions.unauthorized("Email not verified. Please check your inbox or request a resend.");
         }
 
-        // Check if account is locked
-        Instant lockedUntil = user.getLockedUntil();
-        if (lockedUntil != null && lockedUntil.isAfter(Instant.now())) {
+        // Check if account is locked (Redis lock, or the durable one on the users row)
+        Instant lockedUntil = loginAttemptService.lockedUntil(user);
+        if (lockedUntil != null) {
             String msg = String.format("Account is locked until %s", lockedUntil.toString());
             throw Exceptions.accountLocked(msg);
         }
@@ -141,29 +180,36 @@ public class AuthServiceImpl implements AuthService {
         // password verification
         boolean matches = passwordEncoder.matches(request.getPassword(), user.getPassword());
         if (!matches) {
-            // increment failed login count and persist
-            int failed = user.getFailedLoginCount() + 1;
-            user.setFailedLoginCount(failed);
-
-            // if threshold reached -> lock account
-            if (failed >= authProperties.getMaxFailedAttempts()) {
-                Instant until = Instant.now().plus(authProperties.getLockoutDuration());
-                user.setLockedUntil(until);
-                user.setFailedLoginCount(0); // reset counter after locking
-                userRepository.save(user);
-
+            // counted atomically in Redis; the lock reaches Postgres via write-behind
+            Instant until = loginAttemptService.recordFailure(user);
+            if (until != null) {
                 String msg = String.format("Account locked due to repeated failed login attempts. Locked until: %s", until.toString());
                 throw Exceptions.accountLocked(msg);
-            } else {
-                userRepository.save(user);
-                throw Exceptions.unauthorized("Invalid credentials");
             }
+            throw Exceptions.unauthorized("Invalid credentials");
         }
 
-        // Successful login: reset failed count and lockedUntil if set
+        // Successful login: clear the failure counter, and any stale durable state on the row
+        loginAttemptService.recordSuccess(user);
+        boolean dirty = false;
         if (user.getFailedLoginCount() != 0 || user.getLockedUntil() != null) {
             user.setFailedLoginCount(0);
             user.setLockedUntil(null);
+            dirty = true;
+        }
+
+        // we hold the plain password only now: re-hash if the stored algorithm/cost is out of date
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            try {
+                user.setPassword(passwordEncoder.encode(request.getPassword()));
+                dirty = true;
+            } catch (BaseException e) {
+                // hashing capacity exhausted; the login itself already succeeded, upgrade on a later login
+                log.debug("Skipping password re-hash for user {}: {}", user.getId(), e.getMessage());
+            }
+        }
+
+        if (dirty) {
             userRepository.save(user);
         }
 
@@ -176,7 +222,7 @@ public class AuthServiceImpl implements AuthService {
         data.put("accessToken", accessToken.getToken());
         data.put("accessTokenExpiresAt", accessToken.getExpiresAtIso());
 
-        Instant refreshExpiry = Instant.now().plus(30, ChronoUnit.DAYS); // example: 30 days
+        Instant refreshExpiry = Instant.now().plus(authProperties.getRefreshTokenTtl());
         RefreshTokenService.CreateResult rtResult = refreshTokenService.createForUser(user, refreshExpiry);
         data.put("refreshToken", rtResult.getPlainToken());
         data.put("refreshTokenExpiresAt", refreshExpiry.toString());
@@ -184,4 +230,12 @@ public class AuthServiceImpl implements AuthService {
         return data;
     }
 
+    @Override
+    @Transactional
+    public int revokeAllSessions(UUID userId) {
+        int revoked = refreshTokenService.revokeAllForUser(userId);
+        // access tokens: watermark write after commit
+        userRevocationService.revokeAllAccessTokens(userId);
+        return revoked;
+    }
 }
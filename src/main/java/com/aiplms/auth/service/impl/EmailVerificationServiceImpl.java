@@ -42,13 +42,22 @@ public class EmailVerificationServiceImpl implements EmailVerificationService {
     public String createAndSendToken(User user) {
         // remove previous tokens for the user (optional)
         tokenRepository.deleteByUser(user);
+        return issueToken(user);
+    }
+
+    @Override
+    @Transactional
+    public String createAndSendInitialToken(User newUser) {
+        return issueToken(newUser);
+    }
 
+    private String issueToken(User user) {
         // generate random token (URL-safe)
         byte[] random = new byte[32];
         secureRandom.nextBytes(random);
         String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
 
-        String tokenHash = TokenUtil.sha256Hex(token);
+        byte[] tokenHash = TokenUtil.sha256(token);
         Instant expiresAt = Instant.now().plus(tokenTtl);
 
         EmailVerificationToken record = EmailVerificationToken.builder()
@@ -68,7 +77,7 @@ public class EmailVerificationServiceImpl implements EmailVerificationService {
         String body = String.format("Hi %s,\n\nPlease verify your email by clicking the link below:\n\n%s\n\nThis link expires in %d hours.\n\nIf you did not sign up, ignore this message.",
                 user.getUsername(), link, tokenTtl.toHours());
 
-        // send email (MailHog in dev)
+        // queued in the outbox with this transaction; MailOutboxWorker delivers it after commit
         emailService.send(user.getEmail(), subject, body);
 
         return token;
@@ -80,7 +89,7 @@ public class EmailVerificationServiceImpl implements EmailVerificationService {
         if (token == null || token.isBlank()) {
             return false;
         }
-        String hash = TokenUtil.sha256Hex(token);
+        byte[] hash = TokenUtil.sha256(token);
         Optional<EmailVerificationToken> opt = tokenRepository.findByTokenHash(hash);
         if (opt.isEmpty()) {
             return false;
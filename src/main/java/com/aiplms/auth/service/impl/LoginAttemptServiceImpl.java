@@ -0,0 +1,191 @@
+package com.aiplms.auth.service.impl;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.entity.User;
+import com.aiplms.auth.repository.UserRepository;
+import com.aiplms.auth.service.LoginAttemptService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis layout:
+ * - auth:login:fail:{userId}  failure counter, expires auth.login-attempts.failure-window after the first failure
+ * - auth:login:lock:{userId}  lock expiry (epoch millis), expires with the lock
+ *
+ * Counting and the lock decision run in one Lua script, so concurrent guesses can't lose increments or lock
+ * twice. New locks are queued and written to users.locked_until by {@link #flushLocks()} in one JDBC batch.
+ * Postgres stays the durable fallback: lockedUntil() also honours users.locked_until, and when Redis is
+ * unavailable failures are counted on the users row as before.
+ */
+@Service
+@Slf4j
+public class LoginAttemptServiceImpl implements LoginAttemptService {
+
+    static final String FAIL_KEY_PREFIX = "auth:login:fail:";
+    static final String LOCK_KEY_PREFIX = "auth:login:lock:";
+
+    // KEYS[1]=fail counter, KEYS[2]=lock; ARGV[1]=window ms, ARGV[2]=max attempts, ARGV[3]=lockout ms
+    // returns {attempts, lockedUntilMillis (0 if not locked)}
+    private static final RedisScript<List> RECORD_FAILURE = new DefaultRedisScript<>("""
+            local n = redis.call('INCR', KEYS[1])
+            if n == 1 then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end
+            if n >= tonumber(ARGV[2]) then
+              local t = redis.call('TIME')
+              local untilMs = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000) + tonumber(ARGV[3])
+              redis.call('SET', KEYS[2], untilMs, 'PX', ARGV[3])
+              redis.call('DEL', KEYS[1])
+              return {n, untilMs}
+            end
+            return {n, 0}
+            """, List.class);
+
+    private static final String WRITE_LOCK_SQL =
+            "UPDATE users SET locked_until = ?, failed_login_count = 0 "
+                    + "WHERE id = ? AND (locked_until IS NULL OR locked_until < ?)";
+
+    private final StringRedisTemplate redisTemplate;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuthProperties authProperties;
+
+    // userId -> lock expiry waiting to be written to Postgres (latest wins)
+    private final Map<UUID, Instant> pendingLocks = new ConcurrentHashMap<>();
+
+    public LoginAttemptServiceImpl(StringRedisTemplate redisTemplate,
+                                   UserRepository userRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   AuthProperties authProperties) {
+        this.redisTemplate = redisTemplate;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.authProperties = authProperties;
+    }
+
+    @Override
+    public Instant lockedUntil(User user) {
+        Instant now = Instant.now();
+        Instant durable = user.getLockedUntil();
+        Instant locked = durable != null && durable.isAfter(now) ? durable : null;
+        try {
+            String value = redisTemplate.opsForValue().get(LOCK_KEY_PREFIX + user.getId());
+            if (value != null) {
+                Instant redisLock = Instant.ofEpochMilli(Long.parseLong(value));
+                if (redisLock.isAfter(now) && (locked == null || redisLock.isAfter(locked))) {
+                    locked = redisLock;
+                }
+            }
+        } catch (Exception ex) {
+            log.warn("Login lock lookup failed for user={}, using stored state: {}", user.getId(), ex.getMessage());
+        }
+        return locked;
+    }
+
+    @Override
+    public Instant recordFailure(User user) {
+        long windowMs = authProperties.getLoginAttempts().getFailureWindow().toMillis();
+        long lockoutMs = authProperties.getLockoutDuration().toMillis();
+        List<?> result;
+        try {
+            result = redisTemplate.execute(RECORD_FAILURE,
+                    List.of(FAIL_KEY_PREFIX + user.getId(), LOCK_KEY_PREFIX + user.getId()),
+                    Long.toString(windowMs),
+                    Integer.toString(authProperties.getMaxFailedAttempts()),
+                    Long.toString(lockoutMs));
+        } catch (Exception ex) {
+            log.warn("Redis unavailable for failed-login counting (user={}), falling back to Postgres: {}",
+                    user.getId(), ex.getMessage());
+            return recordFailureInDatabase(user);
+        }
+
+        long lockedUntilMs = result == null || result.size() < 2 ? 0L : ((Number) result.get(1)).longValue();
+        if (lockedUntilMs == 0L) {
+            return null;
+        }
+        Instant until = Instant.ofEpochMilli(lockedUntilMs);
+        pendingLocks.merge(user.getId(), until, (a, b) -> a.isAfter(b) ? a : b);
+        return until;
+    }
+
+    @Override
+    public void recordSuccess(User user) {
+        try {
+            redisTemplate.delete(FAIL_KEY_PREFIX + user.getId());
+        } catch (Exception ex) {
+            log.debug("Could not clear failed-login counter for user={}: {}", user.getId(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Write queued locks to Postgres in one batch. A lock that is already further in the future is kept.
+     */
+    @Scheduled(fixedDelayString = "${auth.login-attempts.write-behind-interval-ms:2000}")
+    public void flushLocks() {
+        if (pendingLocks.isEmpty()) {
+            return;
+        }
+        int batchSize = authProperties.getLoginAttempts().getWriteBehindBatchSize();
+        List<Object[]> batch = new ArrayList<>(Math.min(batchSize, pendingLocks.size()));
+        Iterator<Map.Entry<UUID, Instant>> it = pendingLocks.entrySet().iterator();
+        while (it.hasNext() && batch.size() < batchSize) {
+            Map.Entry<UUID, Instant> e = it.next();
+            // remove(key, value): a newer lock queued meanwhile stays for the next flush
+            if (pendingLocks.remove(e.getKey(), e.getValue())) {
+                Timestamp until = Timestamp.from(e.getValue());
+                batch.add(new Object[]{until, e.getKey(), until});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(WRITE_LOCK_SQL, batch);
+            log.debug("Wrote {} account lock(s) to Postgres", batch.size());
+        } catch (Exception ex) {
+            log.warn("Failed to write {} account lock(s) to Postgres, will retry: {}", batch.size(), ex.getMessage());
+            for (Object[] row : batch) {
+                Instant until = ((Timestamp) row[0]).toInstant();
+                pendingLocks.merge((UUID) row[1], until, (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        while (!pendingLocks.isEmpty()) {
+            int before = pendingLocks.size();
+            flushLocks();
+            if (pendingLocks.size() >= before) {
+                break; // database unavailable; the Redis locks still hold until they expire
+            }
+        }
+    }
+
+    private Instant recordFailureInDatabase(User user) {
+        int failed = user.getFailedLoginCount() + 1;
+        user.setFailedLoginCount(failed);
+        Instant until = null;
+        if (failed >= authProperties.getMaxFailedAttempts()) {
+            until = Instant.now().plus(authProperties.getLockoutDuration());
+            user.setLockedUntil(until);
+            user.setFailedLoginCount(0); // reset counter after locking
+        }
+        userRepository.save(user);
+        return until;
+    }
+}
@@ -0,0 +1,33 @@
+package com.aiplms.auth.service.impl;
+
+import com.aiplms.auth.service.EmailService;
+import com.aiplms.auth.service.OutboxService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Writes emails to the outbox instead of talking to SMTP; {@link com.aiplms.auth.outbox.MailOutboxWorker}
+ * delivers them. Each email is its own aggregate (random id), so the payload is the whole message.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxEmailService implements EmailService {
+
+    static final String AGGREGATE_TYPE = "Email";
+
+    private final OutboxService outboxService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void send(String to, String subject, String body) {
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("to", to);
+        payload.put("subject", subject);
+        payload.put("body", body);
+        outboxService.saveEvent(AGGREGATE_TYPE, UUID.randomUUID(), OUTBOX_EVENT_TYPE, payload);
+    }
+}
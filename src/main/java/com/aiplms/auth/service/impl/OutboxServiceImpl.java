@@ -32,13 +32,20 @@ public class OutboxServiceImpl implements OutboxService {
             wrapper.put("raw", payloadJson);
             payloadNode = wrapper;
         }
+        saveEvent(aggregateType, aggregateId, type, payloadNode);
+    }
 
+    @Override
+    @Transactional
+    public void saveEvent(String aggregateType, UUID aggregateId, String type, JsonNode payloadNode) {
+        OffsetDateTime now = OffsetDateTime.now();
         OutboxMessage msg = OutboxMessage.builder()
                 .aggregateType(aggregateType)
                 .aggregateId(aggregateId)
                 .type(type)
                 .payload(payloadNode)
-                .occurredAt(OffsetDateTime.now())
+                .occurredAt(now)
+                .availableAt(now)
                 .processed(false)
                 .retryCount(0)
                 .build();
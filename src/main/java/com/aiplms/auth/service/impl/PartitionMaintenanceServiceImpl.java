@@ -0,0 +1,226 @@
+package com.aiplms.auth.service.impl;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.config.SchedulingConfig;
+import com.aiplms.auth.service.PartitionMaintenanceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Partitions are named {@code <table>_pYYYYMMDD} after their UTC start day (see V14). New partitions continue
+ * from the upper bound of the newest existing one, so changing the period never leaves gaps or overlaps.
+ *
+ * A partition is dropped when its upper bound is past retention and a last check on its rows agrees:
+ * - refresh_tokens: upper bound + refresh token TTL + retention, and no token expiring within retention
+ * - outbox: upper bound + retention, and no unprocessed row and none processed within retention
+ *
+ * Several nodes may run this; each step takes a transaction-scoped advisory lock and a node that doesn't get
+ * it skips the run.
+ *
+ * Metrics:
+ * - auth.partitions.created{table} / auth.partitions.dropped{table} (counters)
+ * - auth.partitions.headroom{table} (gauge, seconds) - how far ahead inserts are covered; alert well above 0
+ */
+@Service
+@Slf4j
+public class PartitionMaintenanceServiceImpl implements PartitionMaintenanceService {
+
+    private static final long ADVISORY_LOCK_KEY = 0x70617274L; // "part"
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private static final String IS_PARTITIONED =
+            "SELECT EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass(?) AND relkind = 'p')";
+
+    // the bound expression is printed in the session time zone; casting it back to timestamptz normalises it
+    private static final String LIST_PARTITIONS = """
+            SELECT c.relname,
+                   (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz
+            FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = to_regclass(?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuthProperties authProperties;
+    private final MeterRegistry meterRegistry;
+    private final List<Table> tables;
+
+    public PartitionMaintenanceServiceImpl(JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           AuthProperties authProperties,
+                                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.authProperties = authProperties;
+        this.meterRegistry = meterRegistry;
+        this.tables = List.of(
+                new Table("refresh_tokens",
+                        p -> p.getPartitions().getRefreshTokensPeriod(),
+                        p -> p.getRefreshTokenTtl().plus(p.getPurge().getRefreshTokenRetention()),
+                        p -> p.getPurge().getRefreshTokenRetention(),
+                        "expires_at > ?"),
+                new Table("outbox",
+                        p -> p.getPartitions().getOutboxPeriod(),
+                        p -> p.getPurge().getOutboxRetention(),
+                        p -> p.getPurge().getOutboxRetention(),
+                        // rows out of retries are closed as processed + failed, so only retryable ones pin a partition
+                        "processed = false OR processed_at > ?"));
+        for (Table table : tables) {
+            Gauge.builder("auth.partitions.headroom", table.headroomSeconds, AtomicLong::get)
+                    .tag("table", table.name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.partitions.maintenance-interval-ms:3600000}",
+            scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+    public void scheduledMaintenance() {
+        if (!authProperties.getPartitions().isEnabled()) {
+            return;
+        }
+        try {
+            maintain();
+        } catch (Exception ex) {
+            log.error("Unexpected error in partition maintenance", ex);
+        }
+    }
+
+    @Override
+    public void maintain() {
+        for (Table table : tables) {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class, table.name))) {
+                log.debug("{} is not partitioned, skipping maintenance", table.name);
+                continue;
+            }
+            try {
+                createAhead(table);
+            } catch (Exception ex) {
+                log.error("Creating partitions for {} failed: {}", table.name, ex.getMessage());
+            }
+            try {
+                dropExpired(table);
+            } catch (Exception ex) {
+                log.warn("Dropping partitions of {} failed, will retry: {}", table.name, ex.getMessage());
+            }
+        }
+    }
+
+    private void createAhead(Table table) {
+        Duration period = wholeDays(table.period.apply(authProperties));
+        Instant horizon = Instant.now().plus(authProperties.getPartitions().getCreateAhead());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!tryLock()) {
+                return;
+            }
+            Instant upper = partitions(table).stream()
+                    .map(Partition::upperBound)
+                    .max(Instant::compareTo)
+                    .orElse(Instant.now().truncatedTo(ChronoUnit.DAYS));
+            while (upper.isBefore(horizon)) {
+                Instant from = upper;
+                upper = from.plus(period);
+                String name = table.name + "_p" + SUFFIX.format(from);
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + table.name
+                        + " FOR VALUES FROM ('" + from + "') TO ('" + upper + "')");
+                Counter.builder("auth.partitions.created").tag("table", table.name).register(meterRegistry)
+                        .increment();
+                log.info("Created partition {} [{}, {})", name, from, upper);
+            }
+            table.headroomSeconds.set(Duration.between(Instant.now(), upper).toSeconds());
+        });
+    }
+
+    private void dropExpired(Table table) {
+        Instant now = Instant.now();
+        Instant cutoff = now.minus(table.dropAfter.apply(authProperties));
+        Timestamp keepSince = Timestamp.from(now.minus(table.retention.apply(authProperties)));
+        long lockTimeoutMs = authProperties.getPartitions().getDropLockTimeout().toMillis();
+
+        for (Partition partition : partitions(table)) {
+            if (partition.upperBound() == null || !partition.upperBound().isBefore(cutoff)) {
+                continue;
+            }
+            // one transaction per partition: a lock timeout only postpones that partition
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!tryLock()) {
+                    return;
+                }
+                Boolean stillNeeded = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition.name()
+                        + " WHERE " + table.keepCondition + ")", Boolean.class, keepSince);
+                if (Boolean.TRUE.equals(stillNeeded)) {
+                    log.warn("Partition {} is past retention but still has live rows, keeping it", partition.name());
+                    return;
+                }
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+                Counter.builder("auth.partitions.dropped").tag("table", table.name).register(meterRegistry)
+                        .increment();
+                log.info("Dropped partition {} (upper bound {})", partition.name(), partition.upperBound());
+            });
+        }
+    }
+
+    private boolean tryLock() {
+        return Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ADVISORY_LOCK_KEY));
+    }
+
+    private List<Partition> partitions(Table table) {
+        return jdbcTemplate.query(LIST_PARTITIONS, (rs, i) -> {
+            Timestamp upper = rs.getTimestamp(2);
+            return new Partition(rs.getString(1), upper == null ? null : upper.toInstant());
+        }, table.name);
+    }
+
+    private static Duration wholeDays(Duration period) {
+        // partition names carry the start day, so periods are whole days
+        return Duration.ofDays(Math.max(1, period.toDays()));
+    }
+
+    private record Partition(String name, Instant upperBound) {
+    }
+
+    /**
+     * A partitioned table. keepCondition takes one parameter: the start of the retention window.
+     */
+    private static final class Table {
+        final String name;
+        final Function<AuthProperties, Duration> period;
+        final Function<AuthProperties, Duration> dropAfter;
+        final Function<AuthProperties, Duration> retention;
+        final String keepCondition;
+        final AtomicLong headroomSeconds = new AtomicLong();
+
+        Table(String name,
+              Function<AuthProperties, Duration> period,
+              Function<AuthProperties, Duration> dropAfter,
+              Function<AuthProperties, Duration> retention,
+              String keepCondition) {
+            this.name = name;
+            this.period = period;
+            this.dropAfter = dropAfter;
+            this.retention = retention;
+            this.keepCondition = keepCondition;
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.aiplms.auth.repository.PasswordResetTokenRepository;
 import com.aiplms.auth.repository.UserRepository;
 import com.aiplms.auth.service.EmailService;
 import com.aiplms.auth.service.PasswordResetService;
+import com.aiplms.auth.service.RefreshTokenService;
+import com.aiplms.auth.service.UserRevocationService;
 import com.aiplms.auth.util.TokenUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +36,8 @@ public class PasswordResetServiceImpl implements PasswordResetService {
     private final UserRepository userRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
+    private final UserRevocationService userRevocationService;
+    private final RefreshTokenService refreshTokenService;
 
     @Value("${app.base-url:http://localhost:8081}")
     private String appBaseUrl;
@@ -66,7 +70,7 @@ public class PasswordResetServiceImpl implements PasswordResetService {
         String token = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
 
         // Hash the token for storage
-        String tokenHash = TokenUtil.sha256Hex(token);
+        byte[] tokenHash = TokenUtil.sha256(token);
         Instant expiresAt = Instant.now().plus(tokenTtl);
 
         PasswordResetToken record = PasswordResetToken.builder()
@@ -87,7 +91,7 @@ public class PasswordResetServiceImpl implements PasswordResetService {
                         "If you did not request this, ignore this message.\n",
                 user.getUsername(), tokenTtl.toMinutes(), link);
 
-        // send email (MailHog in dev)
+        // queued in the outbox with this transaction; MailOutboxWorker delivers it after commit
         emailService.send(user.getEmail(), subject, body);
 
         // return plain token for tests (production: don't log)
@@ -104,7 +108,7 @@ public class PasswordResetServiceImpl implements PasswordResetService {
             throw Exceptions.badRequest("New password required");
         }
 
-        String tokenHash = TokenUtil.sha256Hex(token);
+        byte[] tokenHash = TokenUtil.sha256(token);
         var o = tokenRepository.findByTokenHash(tokenHash);
         if (o.isEmpty()) {
             return false;
@@ -115,10 +119,14 @@ public class PasswordResetServiceImpl implements PasswordResetService {
         if (rec.isUsed()) return false;
         if (rec.getExpiresAt().isBefore(Instant.now())) return false;
 
-        // Update user's password
+        // a reset means the old password may be compromised: end every session, not just new logins.
+        // The security version bump goes out with the password in one UPDATE and rejects every access token
+        // issued before it, instead of blacklisting each outstanding token.
         User user = rec.getUser();
         user.setPassword(passwordEncoder.encode(newPassword));
+        userRevocationService.bumpSecurityVersion(user);
         userRepository.save(user);
+        refreshTokenService.revokeAllForUser(user.getId());
 
         // mark token used
         rec.setUsed(true);
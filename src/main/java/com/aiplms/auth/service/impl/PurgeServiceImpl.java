@@ -0,0 +1,181 @@
+package com.aiplms.auth.service.impl;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.config.SchedulingConfig;
+import com.aiplms.auth.service.PurgeService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Each chunk is one statement in autocommit:
+ *
+ *   WITH doomed AS (SELECT id ... WHERE ts &lt; cutoff AND ts &gt;= cursor ORDER BY ts LIMIT n FOR UPDATE SKIP LOCKED)
+ *   DELETE ... WHERE id = ANY(ARRAY(SELECT id FROM doomed)) RETURNING ts
+ *
+ * The cursor is the newest timestamp deleted so far, so each chunk starts at the index position where the
+ * previous one stopped instead of re-walking dead tuples from the start. SKIP LOCKED lets several nodes purge
+ * at once without waiting on each other or on a row a request is using.
+ *
+ * Metrics:
+ * - auth.purge.rows{table} (counter) - rows deleted
+ * - auth.purge.duration{table} (timer) - time spent per table and run, pauses included
+ * - auth.purge.chunk{table} (timer) - latency of each delete statement; the back-off signal
+ */
+@Service
+@Slf4j
+public class PurgeServiceImpl implements PurgeService {
+
+    private static final Timestamp START = Timestamp.from(Instant.EPOCH);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuthProperties.Purge properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Target> targets;
+
+    public PurgeServiceImpl(JdbcTemplate jdbcTemplate, AuthProperties authProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = authProperties.getPurge();
+        this.meterRegistry = meterRegistry;
+        // refresh_tokens and outbox are partitioned and expire by partition drop (PartitionMaintenanceServiceImpl)
+        this.targets = List.of(
+                Target.of("email_verification_tokens", "expires_at", "",
+                        AuthProperties.Purge::getEmailVerificationTokenRetention),
+                Target.of("password_reset_tokens", "expires_at", "",
+                        AuthProperties.Purge::getPasswordResetTokenRetention));
+    }
+
+    @Scheduled(fixedDelayString = "${auth.purge.interval-ms:600000}",
+            initialDelayString = "${auth.purge.initial-delay-ms:60000}",
+            scheduler = SchedulingConfig.MAINTENANCE_SCHEDULER)
+    public void scheduledPurge() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            Map<String, Long> deleted = purgeExpired();
+            if (deleted.values().stream().anyMatch(n -> n > 0)) {
+                log.info("Purged expired rows: {}", deleted);
+            }
+        } catch (Exception ex) {
+            log.error("Unexpected error in scheduled purge", ex);
+        }
+    }
+
+    @Override
+    public Map<String, Long> purgeExpired() {
+        Map<String, Long> deleted = new LinkedHashMap<>();
+        for (Target target : targets) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            try {
+                deleted.put(target.table(), purge(target));
+            } catch (Exception ex) {
+                // one table failing (e.g. lock timeout) shouldn't keep the others from being purged
+                log.warn("Purge of {} failed: {}", target.table(), ex.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    private long purge(Target target) {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(target.retention().apply(properties)));
+        int chunkSize = properties.getChunkSize();
+        long budgetNanos = properties.getMaxRunTime().toNanos();
+        long slowNanos = properties.getSlowChunkThreshold().toNanos();
+
+        Counter rows = Counter.builder("auth.purge.rows").tag("table", target.table()).register(meterRegistry);
+        Timer chunkTimer = Timer.builder("auth.purge.chunk").tag("table", target.table()).register(meterRegistry);
+        Timer runTimer = Timer.builder("auth.purge.duration").tag("table", target.table()).register(meterRegistry);
+
+        long started = System.nanoTime();
+        long total = 0;
+        Timestamp cursor = START;
+        try {
+            while (true) {
+                long chunkStart = System.nanoTime();
+                Chunk chunk = jdbcTemplate.queryForObject(target.sql(),
+                        (rs, i) -> new Chunk(rs.getInt(1), rs.getTimestamp(2)), cutoff, cursor, chunkSize);
+                long chunkNanos = System.nanoTime() - chunkStart;
+                chunkTimer.record(chunkNanos, TimeUnit.NANOSECONDS);
+
+                int n = chunk == null ? 0 : chunk.deleted();
+                total += n;
+                rows.increment(n);
+                if (n < chunkSize || System.nanoTime() - started >= budgetNanos) {
+                    break;
+                }
+                cursor = chunk.last();
+
+                Duration pause = chunkNanos > slowNanos
+                        ? min(Duration.ofNanos(chunkNanos * 2), properties.getMaxPause())
+                        : properties.getChunkPause();
+                if (!sleep(pause)) {
+                    break;
+                }
+            }
+        } finally {
+            runTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        if (total > 0) {
+            log.debug("Purged {} row(s) from {} older than {}", total, target.table(), cutoff.toInstant());
+        }
+        return total;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static boolean sleep(Duration pause) {
+        if (pause.isZero() || pause.isNegative()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Chunk(int deleted, Timestamp last) {
+    }
+
+    /**
+     * A table whose rows expire by one timestamp column. Table and column names are constants, never input.
+     */
+    private record Target(String table, String sql, Function<AuthProperties.Purge, Duration> retention) {
+
+        static Target of(String table, String column, String condition,
+                         Function<AuthProperties.Purge, Duration> retention) {
+            // id = ANY(ARRAY(...)) keeps the delete on primary key lookups; a join with the CTE can be
+            // planned as a hash join over a full scan of the table
+            String sql = "WITH doomed AS ("
+                    + " SELECT id FROM " + table
+                    + " WHERE " + column + " < ? AND " + column + " >= ?" + condition
+                    + " ORDER BY " + column
+                    + " LIMIT ?"
+                    + " FOR UPDATE SKIP LOCKED),"
+                    + " gone AS (DELETE FROM " + table + " WHERE id = ANY (ARRAY(SELECT id FROM doomed))"
+                    + " RETURNING " + column + " AS ts)"
+                    + " SELECT count(*), max(ts) FROM gone";
+            return new Target(table, sql, retention);
+        }
+    }
+}
@@ -1,35 +1,44 @@
 package com.aiplms.auth.service.impl;
 
+import com.aiplms.auth.config.AuthProperties;
 import com.aiplms.auth.entity.RefreshToken;
 import com.aiplms.auth.entity.User;
+import com.aiplms.auth.exception.Exceptions;
 import com.aiplms.auth.repository.RefreshTokenRepository;
+import com.aiplms.auth.repository.UserRepository;
 import com.aiplms.auth.service.RefreshTokenService;
 import com.aiplms.auth.util.TokenUtil;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.security.MessageDigest;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class RefreshTokenServiceImpl implements RefreshTokenService {
 
+    private static final char SEPARATOR = '.';
+    private static final int VERIFIER_BYTES = 32;
+
     private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final AuthProperties authProperties;
 
     @Override
     @Transactional
     public CreateResult createForUser(User user, Instant expiresAt) {
-        // generate opaque token for client
-        String plainToken = TokenUtil.generateOpaqueToken();
-        // hash for storage
-        String tokenHash = TokenUtil.sha256Hex(plainToken);
+        // only the verifier's hash is stored; the selector is the id assigned on persist
+        String verifier = TokenUtil.generateOpaqueToken(VERIFIER_BYTES);
 
         RefreshToken rt = RefreshToken.builder()
-                .id(UUID.randomUUID())
                 .user(user)
-                .tokenHash(tokenHash)
+                .tokenHash(TokenUtil.sha256(verifier))
                 .revoked(false)
                 .expiresAt(expiresAt)
                 .createdAt(Instant.now())
@@ -37,19 +46,121 @@ public class RefreshTokenServiceImpl implements RefreshTokenService {
 
         RefreshToken saved = refreshTokenRepository.save(rt);
 
-        return new CreateResult(plainToken, saved);
+        return new CreateResult(format(saved.getId(), verifier), saved);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public java.util.Optional<RefreshToken> findByHash(String tokenHash) {
-        return refreshTokenRepository.findByTokenHash(tokenHash);
+    public Optional<RefreshToken> findByToken(String presentedToken) {
+        return lookup(Presented.parse(presentedToken), liveSince());
     }
 
     @Override
     @Transactional
     public void revoke(RefreshToken token) {
+        // targeted update on (id, created_at): one partition, no select-before-update from merge()
+        refreshTokenRepository.revoke(token.getId(), token.getCreatedAt());
         token.setRevoked(true);
-        refreshTokenRepository.save(token);
+    }
+
+    @Override
+    @Transactional
+    public int revokeAllForUser(UUID userId) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(userId, liveSince());
+        log.info("Revoked {} refresh token(s) for user={}", revoked, userId);
+        return revoked;
+    }
+
+    @Override
+    @Transactional
+    public RotateResult rotate(String presentedToken, Instant expiresAt) {
+        Presented presented = Presented.parse(presentedToken);
+        UUID newId = UUID.randomUUID();
+        String verifier = TokenUtil.generateOpaqueToken(VERIFIER_BYTES);
+        byte[] newHash = TokenUtil.sha256(verifier);
+
+        // 1 statement: conditional revoke + successor insert; 2nd: the user with roles for the access token
+        Optional<UUID> userId;
+        if (presented.selector() != null) {
+            userId = refreshTokenRepository.rotate(presented.selector(), presented.hash(), liveSince(),
+                    newId, newHash, expiresAt);
+        } else if (presented.hash() != null && authProperties.isLegacyRefreshTokensEnabled()) {
+            userId = refreshTokenRepository.rotateLegacy(presented.hash(), liveSince(), newId, newHash, expiresAt);
+        } else {
+            userId = Optional.empty();
+        }
+        if (userId.isEmpty()) {
+            throw rejection(presented);
+        }
+        User user = userRepository.findByIdWithRoles(userId.get())
+                .orElseThrow(() -> Exceptions.unauthorized("Invalid refresh token"));
+        return new RotateResult(format(newId, verifier), user);
+    }
+
+    /**
+     * Failure path only: look the token up again to report why it was rejected.
+     */
+    private RuntimeException rejection(Presented presented) {
+        // look back over the retention window too, so recently expired tokens are still reported as expired
+        Instant since = liveSince().minus(authProperties.getPurge().getRefreshTokenRetention());
+        Optional<RefreshToken> stored = lookup(presented, since);
+        if (stored.isEmpty()) {
+            // token not found -> invalid or reuse
+            return Exceptions.unauthorized("Invalid refresh token");
+        }
+        if (stored.get().isRevoked()) {
+            // possible reuse / replay, or the losing side of a concurrent refresh
+            // TODO: optionally revoke all tokens for user
+            log.warn("Revoked refresh token presented (id={})", stored.get().getId());
+            return Exceptions.unauthorized("Refresh token has been revoked");
+        }
+        return Exceptions.unauthorized("Refresh token expired");
+    }
+
+    private Optional<RefreshToken> lookup(Presented presented, Instant since) {
+        if (presented.selector() != null) {
+            // the verifier hash is compared in constant time; a selector alone proves nothing
+            return refreshTokenRepository.findByIdAndCreatedAtAfter(presented.selector(), since)
+                    .filter(t -> MessageDigest.isEqual(t.getTokenHash(), presented.hash()));
+        }
+        if (presented.hash() != null && authProperties.isLegacyRefreshTokensEnabled()) {
+            return refreshTokenRepository.findByTokenHashAndCreatedAtAfter(presented.hash(), since);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Tokens expire refresh-token-ttl after creation, so anything created earlier can't be live. Bounding
+     * queries by it lets Postgres prune the older refresh_tokens partitions.
+     */
+    private Instant liveSince() {
+        return Instant.now().minus(authProperties.getRefreshTokenTtl());
+    }
+
+    private static String format(UUID selector, String verifier) {
+        return TokenUtil.encodeUuid(selector) + SEPARATOR + verifier;
+    }
+
+    /**
+     * A presented token: selector (null for legacy opaque tokens) and the hash to check, which is the SHA-256
+     * of the verifier, or of the whole token for legacy ones. Both null if the token is malformed.
+     */
+    private record Presented(UUID selector, byte[] hash) {
+
+        static Presented parse(String token) {
+            if (token == null || token.isEmpty()) {
+                return new Presented(null, null);
+            }
+            int sep = token.indexOf(SEPARATOR);
+            if (sep < 0) {
+                // legacy opaque tokens are plain Base64 URL-safe and never contain the separator
+                return new Presented(null, TokenUtil.sha256(token));
+            }
+            UUID selector = TokenUtil.decodeUuid(token.substring(0, sep));
+            if (selector == null) {
+                return new Presented(null, null);
+            }
+            return new Presented(selector, TokenUtil.sha256(token.substring(sep + 1)));
+        }
     }
 }
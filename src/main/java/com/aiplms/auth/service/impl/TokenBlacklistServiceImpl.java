@@ -1,103 +1,228 @@
 package com.aiplms.auth.service.impl;
 
-import com.aiplms.auth.service.TokenBlacklistService;
+import com.aiplms.auth.config.AuthProperties;
 import com.aiplms.auth.security.JwtService;
-import com.aiplms.auth.util.TokenUtil;
-import lombok.RequiredArgsConstructor;
+import com.aiplms.auth.security.RevokedTokenNearCache;
+import com.aiplms.auth.security.ValidatedToken;
+import com.aiplms.auth.service.RedisCircuitBreaker;
+import com.aiplms.auth.service.TokenBlacklistService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Date;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation stores a Redis key per token with TTL set to remaining token lifetime.
  * Key pattern: auth:blacklist:access:{jtiOrHash}
+ *
+ * Almost no tokens are ever revoked, so every node keeps a {@link RevokedTokenNearCache} (Bloom filter) of
+ * revoked keys and only asks Redis when the filter says "maybe". The filter is filled by a SCAN at startup,
+ * kept current through the auth:blacklist:events pub/sub channel, and re-scanned periodically to repair
+ * anything missed while pub/sub was disconnected.
+ *
+ * Keys this node knows are revoked (revoked here, announced over pub/sub, or seen in Redis) are also kept
+ * exactly, for one access token TTL, and answered without Redis. Other lookups go through
+ * {@link RedisCircuitBreaker}; while Redis is unavailable a near-cache "maybe" is decided by
+ * auth.blacklist.fail-open.
+ *
+ * Revoking never fails because of Redis: the token is rejected on this node right away, and a write that
+ * doesn't reach Redis is retried with every resync until it does (or the token has expired anyway). Other
+ * nodes learn about it from that retry.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class TokenBlacklistServiceImpl implements TokenBlacklistService {
+public class TokenBlacklistServiceImpl implements TokenBlacklistService, MessageListener {
+
+    private static final String KEY_PREFIX = "auth:blacklist:access:";
+    static final String EVENTS_CHANNEL = "auth:blacklist:events";
 
     private final StringRedisTemplate redisTemplate;
     private final JwtService jwtService;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final AuthProperties authProperties;
+    private final RevokedTokenNearCache nearCache;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final Cache<String, Boolean> knownRevoked;
+    // revocation key -> token expiry, for revocations not yet written to Redis
+    private final Map<String, Instant> pendingWrites = new ConcurrentHashMap<>();
 
-    private static final String KEY_PREFIX = "auth:blacklist:access:";
+    private volatile Instant lastRotation = Instant.now();
+
+    public TokenBlacklistServiceImpl(StringRedisTemplate redisTemplate,
+                                     JwtService jwtService,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     AuthProperties authProperties,
+                                     RedisCircuitBreaker circuitBreaker) {
+        this.redisTemplate = redisTemplate;
+        this.jwtService = jwtService;
+        this.listenerContainer = listenerContainer;
+        this.authProperties = authProperties;
+        this.circuitBreaker = circuitBreaker;
+
+        AuthProperties.Blacklist cfg = authProperties.getBlacklist();
+        this.nearCache = cfg.isNearCacheEnabled()
+                ? new RevokedTokenNearCache(cfg.getExpectedRevocations(), cfg.getFalsePositiveProbability())
+                : null;
+        // a revoked key only matters until the token it describes has expired
+        this.knownRevoked = Caffeine.newBuilder()
+                .maximumSize(cfg.getKnownRevokedCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(authProperties.getJwt().getAccessTokenTtlSeconds()))
+                .build();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        if (nearCache != null) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(EVENTS_CHANNEL));
+        }
+    }
 
     @Override
     public void blacklistAccessToken(String jwt) {
         if (jwt == null || jwt.isBlank()) {
             throw new IllegalArgumentException("jwt must be provided");
         }
+        blacklistAccessToken(jwtService.validate(jwt));
+    }
 
-        JwtService.JwtClaims claims = jwtService.parseAndValidate(jwt);
-        // Try to get jti
-        String jti = claims.getClaimAsString("jti");
-        String keyId;
-        if (jti != null && !jti.isBlank()) {
-            keyId = jti;
-        } else {
-            keyId = TokenUtil.sha256Hex(jwt);
-        }
-
-        long ttlSeconds = computeTtlSecondsFromClaims(claims.getAllClaims());
+    @Override
+    public void blacklistAccessToken(ValidatedToken token) {
+        long ttlSeconds = token.getExpiresAt() == null
+                ? -1L
+                : Duration.between(Instant.now(), token.getExpiresAt()).getSeconds();
         if (ttlSeconds <= 0) {
             // If token already expired or TTL not determined, use a conservative TTL (e.g. 1 minute).
             ttlSeconds = 60;
         }
 
-        String redisKey = KEY_PREFIX + keyId;
-        redisTemplate.opsForValue().set(redisKey, "1", ttlSeconds, TimeUnit.SECONDS);
-        log.info("Blacklisted access token key={} ttlSeconds={}", redisKey, ttlSeconds);
+        String revocationKey = token.getRevocationKey();
+        // locally first: this node rejects the token even if the Redis write fails
+        knownRevoked.put(revocationKey, Boolean.TRUE);
+        if (nearCache != null) {
+            nearCache.add(revocationKey);
+        }
+        if (write(revocationKey, ttlSeconds)) {
+            log.info("Blacklisted access token key={}{} ttlSeconds={}", KEY_PREFIX, revocationKey, ttlSeconds);
+        } else {
+            pendingWrites.put(revocationKey, Instant.now().plusSeconds(ttlSeconds));
+            log.warn("Redis unavailable, access token key={}{} revoked on this node only until the write is retried",
+                    KEY_PREFIX, revocationKey);
+        }
+    }
+
+    /**
+     * @return false if Redis is unavailable (breaker open or the call failed)
+     */
+    private boolean write(String revocationKey, long ttlSeconds) {
+        return circuitBreaker.call(() -> {
+            redisTemplate.opsForValue().set(KEY_PREFIX + revocationKey, "1", ttlSeconds, TimeUnit.SECONDS);
+            if (nearCache != null) {
+                // other nodes add it to their filters; a lost message is repaired by the periodic resync
+                redisTemplate.convertAndSend(EVENTS_CHANNEL, revocationKey);
+            }
+            return true;
+        }, () -> false);
     }
 
     @Override
-    public boolean isBlacklisted(String jwt) {
-        if (jwt == null || jwt.isBlank()) return false;
-        try {
-            JwtService.JwtClaims claims = jwtService.parseAndValidate(jwt);
-            String jti = claims.getClaimAsString("jti");
-            String keyId = (jti != null && !jti.isBlank()) ? jti : TokenUtil.sha256Hex(jwt);
-            String redisKey = KEY_PREFIX + keyId;
-            return Boolean.TRUE.equals(redisTemplate.hasKey(redisKey));
-        } catch (Exception ex) {
-            // If token invalid, consider it 'not blacklisted' here - caller should have validated token earlier.
+    public boolean isBlacklisted(ValidatedToken token) {
+        if (token == null) return false;
+        String revocationKey = token.getRevocationKey();
+        if (knownRevoked.getIfPresent(revocationKey) != null) {
+            return true;
+        }
+        if (nearCache != null && !nearCache.mightBeRevoked(revocationKey)) {
             return false;
         }
+        return circuitBreaker.call(() -> {
+            boolean revoked = Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + revocationKey));
+            if (revoked) {
+                knownRevoked.put(revocationKey, Boolean.TRUE);
+            }
+            return revoked;
+        }, () -> !authProperties.getBlacklist().isFailOpen());
     }
 
     /**
-     * TTL calculation: extract 'exp' claim (expected numeric seconds or java.util.Date)
+     * Pub/sub callback: a token was revoked on another node.
      */
-    private long computeTtlSecondsFromClaims(Map<String, Object> claims) {
-        if (claims == null) return -1L;
-        Object expObj = claims.get("exp");
-        if (expObj == null) {
-            // try nested types or string
-            return -1L;
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String revocationKey = new String(message.getBody(), StandardCharsets.UTF_8);
+        nearCache.add(revocationKey);
+        knownRevoked.put(revocationKey, Boolean.TRUE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        if (nearCache != null) {
+            resync();
         }
-        // If expObj is java.util.Date (some JWT libs map it), compute ttl
-        if (expObj instanceof Date) {
-            Date exp = (Date) expObj;
-            long diff = (exp.getTime() - System.currentTimeMillis()) / 1000L;
-            return diff;
+    }
+
+    /**
+     * Retry revocations Redis missed, rotate the Bloom filter generations once per access token TTL and
+     * re-scan Redis.
+     */
+    @Scheduled(fixedDelayString = "${auth.blacklist.resync-interval-ms:60000}")
+    public void maintainNearCache() {
+        retryPendingWrites();
+        if (nearCache == null) {
+            return;
         }
-        // If Number (seconds since epoch)
-        if (expObj instanceof Number) {
-            long expSeconds = ((Number) expObj).longValue();
-            long nowSeconds = System.currentTimeMillis() / 1000L;
-            return expSeconds - nowSeconds;
+        Duration ttl = Duration.ofSeconds(authProperties.getJwt().getAccessTokenTtlSeconds());
+        if (Duration.between(lastRotation, Instant.now()).compareTo(ttl) >= 0) {
+            nearCache.rotate();
+            lastRotation = Instant.now();
         }
-        // If string numeric
-        try {
-            long expSeconds = Long.parseLong(expObj.toString());
-            long nowSeconds = System.currentTimeMillis() / 1000L;
-            return expSeconds - nowSeconds;
-        } catch (Exception e) {
-            return -1L;
+        resync();
+    }
+
+    private void retryPendingWrites() {
+        Instant now = Instant.now();
+        for (Map.Entry<String, Instant> e : pendingWrites.entrySet()) {
+            long ttlSeconds = Duration.between(now, e.getValue()).getSeconds();
+            if (ttlSeconds > 0 && !write(e.getKey(), ttlSeconds)) {
+                // still unavailable; the rest waits for the next run
+                return;
+            }
+            pendingWrites.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    private void resync() {
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build();
+        long count = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                nearCache.add(cursor.next().substring(KEY_PREFIX.length()));
+                count++;
+            }
+            if (!nearCache.isSynced()) {
+                nearCache.markSynced();
+                log.info("Blacklist near-cache ready ({} revoked keys loaded)", count);
+            }
+        } catch (Exception ex) {
+            // until the first successful scan every lookup keeps going to Redis
+            log.warn("Blacklist near-cache resync failed: {}", ex.getMessage());
         }
     }
 }
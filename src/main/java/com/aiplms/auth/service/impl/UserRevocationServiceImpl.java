@@ -0,0 +1,245 @@
+package com.aiplms.auth.service.impl;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.aiplms.auth.entity.User;
+import com.aiplms.auth.service.RedisCircuitBreaker;
+import com.aiplms.auth.service.UserRevocationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis layout: hash auth:user:revocation:{userId} with fields
+ * - 'sv': minimum accepted security version
+ * - 'rbm': revoked-before watermark (epoch millis); tokens issued before it are rejected
+ *
+ * The hash only has to outlive the access tokens it rejects, so its TTL is the access token TTL: once it
+ * expires every older token has expired too. Lookups are cached per node for auth.revocation.local-cache-ttl;
+ * writes are broadcast on auth:user:revocation:events so other nodes drop their cached entry right away.
+ *
+ * Reads and writes go through {@link RedisCircuitBreaker}. While Redis is unavailable, a user whose state isn't
+ * cached is decided by auth.revocation.fail-open, and that answer is not cached. A write that doesn't reach
+ * Redis is enforced on this node at once and retried every auth.revocation.retry-interval-ms until it does,
+ * or until the tokens it rejects have expired.
+ */
+@Service
+@Slf4j
+public class UserRevocationServiceImpl implements UserRevocationService, MessageListener {
+
+    static final String KEY_PREFIX = "auth:user:revocation:";
+    static final String FIELD_MIN_VERSION = "sv";
+    static final String FIELD_REVOKED_BEFORE_MILLIS = "rbm";
+    static final String EVENTS_CHANNEL = "auth:user:revocation:events";
+
+    private static final List<Object> FIELDS = Arrays.asList(FIELD_MIN_VERSION, FIELD_REVOKED_BEFORE_MILLIS);
+    private static final RevocationState NONE = new RevocationState(0L, Long.MIN_VALUE);
+
+    private final StringRedisTemplate redisTemplate;
+    private final AuthProperties authProperties;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final Cache<UUID, RevocationState> states;
+    // user id -> revocation not yet written to Redis
+    private final Map<UUID, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+
+    public UserRevocationServiceImpl(StringRedisTemplate redisTemplate,
+                                     AuthProperties authProperties,
+                                     RedisMessageListenerContainer listenerContainer,
+                                     RedisCircuitBreaker circuitBreaker,
+                                     MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.authProperties = authProperties;
+        this.listenerContainer = listenerContainer;
+        this.circuitBreaker = circuitBreaker;
+
+        AuthProperties.Revocation cfg = authProperties.getRevocation();
+        this.states = Caffeine.newBuilder()
+                .maximumSize(cfg.getLocalCacheMaximumSize())
+                .expireAfterWrite(cfg.getLocalCacheTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, states, "userRevocationState");
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVENTS_CHANNEL));
+    }
+
+    @Override
+    public boolean isRevoked(UUID userId, long securityVersion, Instant issuedAt) {
+        if (!pendingWrites.isEmpty()) {
+            PendingWrite pending = pendingWrites.get(userId);
+            if (pending != null && pending.state().rejects(securityVersion, issuedAt)) {
+                return true;
+            }
+        }
+        // a null load (Redis unavailable) isn't cached, so the next request asks Redis again
+        RevocationState state = states.get(userId, this::load);
+        if (state == null) {
+            return !authProperties.getRevocation().isFailOpen();
+        }
+        return state.rejects(securityVersion, issuedAt);
+    }
+
+    @Override
+    public void bumpSecurityVersion(User user) {
+        int newVersion = user.getSecurityVersion() + 1;
+        user.setSecurityVersion(newVersion);
+
+        UUID userId = user.getId();
+        afterCommit(() -> publish(userId, new RevocationState(newVersion, Long.MIN_VALUE)));
+    }
+
+    @Override
+    public void revokeAllAccessTokens(UUID userId) {
+        // strict "<" in isRevoked: a login in the same second as the revoke keeps its new token
+        afterCommit(() -> publish(userId, new RevocationState(0L, Instant.now().toEpochMilli())));
+    }
+
+    /**
+     * Retry revocations Redis missed. Entries older than the access token TTL are dropped: every token they
+     * would reject has expired.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.retry-interval-ms:5000}")
+    public void retryPendingWrites() {
+        Instant cutoff = Instant.now().minusSeconds(authProperties.getJwt().getAccessTokenTtlSeconds());
+        for (Map.Entry<UUID, PendingWrite> e : pendingWrites.entrySet()) {
+            PendingWrite pending = e.getValue();
+            if (pending.since().isAfter(cutoff)) {
+                if (!write(e.getKey(), pending.state())) {
+                    // still unavailable; the rest waits for the next run
+                    return;
+                }
+                log.info("Revocation state for user={} written to Redis after retry", e.getKey());
+            }
+            pendingWrites.remove(e.getKey(), pending);
+        }
+    }
+
+    /**
+     * Pub/sub callback: another node changed this user's revocation state.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            states.invalidate(UUID.fromString(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException ex) {
+            log.debug("Ignoring malformed revocation event: {}", ex.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // publishing before commit could reject fresh tokens if the transaction rolls back
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void publish(UUID userId, RevocationState update) {
+        // an older revocation still waiting for Redis goes out with this one, so a retry can't overwrite it
+        PendingWrite pending = pendingWrites.get(userId);
+        RevocationState state = pending == null ? update : pending.state().merge(update);
+        if (write(userId, state)) {
+            if (pending != null) {
+                pendingWrites.remove(userId, pending);
+            }
+            log.info("Revoked access tokens for user={} ({})", userId, state);
+            return;
+        }
+        pendingWrites.merge(userId, new PendingWrite(update, Instant.now()), PendingWrite::merge);
+        log.warn("Redis unavailable, access tokens of user={} revoked on this node only until the write is retried",
+                userId);
+    }
+
+    /**
+     * @return false if Redis is unavailable (breaker open or the call failed)
+     */
+    private boolean write(UUID userId, RevocationState state) {
+        String key = KEY_PREFIX + userId;
+        Map<String, String> fields = new HashMap<>(2);
+        if (state.minVersion() > 0) {
+            fields.put(FIELD_MIN_VERSION, Long.toString(state.minVersion()));
+        }
+        if (state.revokedBeforeMillis() != Long.MIN_VALUE) {
+            fields.put(FIELD_REVOKED_BEFORE_MILLIS, Long.toString(state.revokedBeforeMillis()));
+        }
+        boolean written = circuitBreaker.call(() -> {
+            redisTemplate.opsForHash().putAll(key, fields);
+            redisTemplate.expire(key, Duration.ofSeconds(authProperties.getJwt().getAccessTokenTtlSeconds()));
+            redisTemplate.convertAndSend(EVENTS_CHANNEL, userId.toString());
+            return true;
+        }, () -> false);
+        if (written) {
+            states.invalidate(userId);
+        }
+        return written;
+    }
+
+    /**
+     * @return the user's state, or null if Redis is unavailable
+     */
+    private RevocationState load(UUID userId) {
+        List<Object> values = circuitBreaker.call(
+                () -> redisTemplate.opsForHash().multiGet(KEY_PREFIX + userId, FIELDS), () -> null);
+        if (values == null) {
+            return null;
+        }
+        Object sv = values.get(0);
+        Object rbm = values.get(1);
+        if (sv == null && rbm == null) {
+            return NONE;
+        }
+        return new RevocationState(
+                sv == null ? 0L : Long.parseLong(sv.toString()),
+                rbm == null ? Long.MIN_VALUE : Long.parseLong(rbm.toString()));
+    }
+
+    private record RevocationState(long minVersion, long revokedBeforeMillis) {
+
+        boolean rejects(long securityVersion, Instant issuedAt) {
+            return securityVersion < minVersion || issuedAt.toEpochMilli() < revokedBeforeMillis;
+        }
+
+        RevocationState merge(RevocationState other) {
+            return new RevocationState(Math.max(minVersion, other.minVersion),
+                    Math.max(revokedBeforeMillis, other.revokedBeforeMillis));
+        }
+    }
+
+    private record PendingWrite(RevocationState state, Instant since) {
+
+        PendingWrite merge(PendingWrite other) {
+            return new PendingWrite(state.merge(other.state), since.isAfter(other.since) ? since : other.since);
+        }
+    }
+}
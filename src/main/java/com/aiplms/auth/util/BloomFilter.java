@@ -0,0 +1,75 @@
+package com.aiplms.auth.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, thread-safe Bloom filter over strings.
+ *
+ * "false" from {@link #mightContain(String)} is definitive; "true" may be a false positive at roughly the
+ * configured probability once {@code expectedInsertions} keys have been added. No removal: callers that
+ * need expiry rotate whole filters.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be > 0");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability must be in (0, 1)");
+        }
+        // standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE, (bits + 63) >>> 6);
+        this.words = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(String key) {
+        long h1 = fnv1a64(key);
+        long h2 = mix64(h1) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int idx = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur;
+            do {
+                cur = words.get(idx);
+                if ((cur & mask) != 0) break;
+            } while (!words.compareAndSet(idx, cur, cur | mask));
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long h1 = fnv1a64(key);
+        long h2 = mix64(h1) | 1L;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long fnv1a64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // splitmix64 finalizer, gives an independent second hash for double hashing
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
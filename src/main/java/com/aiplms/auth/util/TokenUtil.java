@@ -5,14 +5,29 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.UUID;
 
 /**
  * Utility class for generating opaque tokens and hashing using SHA-256.
+ *
+ * Stored token hashes are the raw 32-byte digest ({@link #sha256}); {@link #sha256Hex} is kept for
+ * places that need a printable key (e.g. Redis).
  */
 public final class TokenUtil {
 
-    private static final SecureRandom secureRandom = new SecureRandom();
     private static final int TOKEN_BYTES = 64; // 512-bit token
+    public static final int HASH_BYTES = 32;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_URL_DECODER = Base64.getUrlDecoder();
+
+    // MessageDigest is not thread-safe and getInstance() does a provider lookup, so keep one per thread
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(TokenUtil::newSha256);
+
+    // The default SecureRandom serialises callers on one lock; independent DRBG stripes spread the contention.
+    private static final SecureRandom[] RANDOMS = newStripes();
+    private static final int STRIPE_MASK = RANDOMS.length - 1;
 
     private TokenUtil() {}
 
@@ -21,32 +36,98 @@ public final class TokenUtil {
      * Returned in Base64 URL-safe format without padding.
      */
     public static String generateOpaqueToken() {
-        byte[] bytes = new byte[TOKEN_BYTES];
-        secureRandom.nextBytes(bytes);
+        return generateOpaqueToken(TOKEN_BYTES);
+    }
+
+    /**
+     * Generate a cryptographically secure opaque token of the given number of random bytes.
+     * Returned in Base64 URL-safe format without padding.
+     */
+    public static String generateOpaqueToken(int randomBytes) {
+        byte[] bytes = new byte[randomBytes];
+        RANDOMS[(int) Thread.currentThread().getId() & STRIPE_MASK].nextBytes(bytes);
+        return BASE64_URL.encodeToString(bytes);
+    }
+
+    /**
+     * Encode a UUID as 22 Base64 URL-safe characters (no padding).
+     */
+    public static String encodeUuid(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (56 - 8 * i));
+            bytes[8 + i] = (byte) (lsb >>> (56 - 8 * i));
+        }
+        return BASE64_URL.encodeToString(bytes);
+    }
+
+    /**
+     * Inverse of {@link #encodeUuid}.
+     *
+     * @return the UUID, or null if the input is not 22 Base64 URL-safe characters
+     */
+    public static UUID decodeUuid(String encoded) {
+        if (encoded == null || encoded.length() != 22) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = BASE64_URL_DECODER.decode(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xFF);
+            lsb = (lsb << 8) | (bytes[8 + i] & 0xFF);
+        }
+        return new UUID(msb, lsb);
+    }
 
-        return Base64.getUrlEncoder()
-                .withoutPadding()
-                .encodeToString(bytes);
+    /**
+     * Compute the raw SHA-256 digest (32 bytes) of the UTF-8 input.
+     */
+    public static byte[] sha256(String input) {
+        return SHA256.get().digest(input.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
      * Compute SHA-256 hash (hex encoded).
      */
     public static String sha256Hex(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hashBytes = md.digest(input.getBytes(StandardCharsets.UTF_8));
+        return toHex(sha256(input));
+    }
 
-            StringBuilder sb = new StringBuilder(hashBytes.length * 2);
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+            out[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+        }
+        return new String(out);
+    }
 
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-}
-
 
+    private static SecureRandom[] newStripes() {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        SecureRandom[] randoms = new SecureRandom[stripes];
+        for (int i = 0; i < stripes; i++) {
+            try {
+                randoms[i] = SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                randoms[i] = new SecureRandom();
+            }
+        }
+        return randoms;
+    }
+}
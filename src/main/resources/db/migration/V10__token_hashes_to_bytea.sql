@@ -0,0 +1,27 @@
+-- V10__token_hashes_to_bytea.sql
+-- Store token hashes as the raw 32-byte SHA-256 instead of 64-char hex text.
+-- Existing rows hold lowercase hex from TokenUtil.sha256Hex, so decode(..., 'hex') converts them in place.
+
+-- refresh_tokens: ux_refresh_tokens_token_hash is rebuilt by the type change
+ALTER TABLE public.refresh_tokens
+    ALTER COLUMN token_hash TYPE BYTEA USING decode(token_hash, 'hex');
+ALTER TABLE public.refresh_tokens
+    ADD CONSTRAINT ck_refresh_tokens_token_hash_len CHECK (octet_length(token_hash) = 32);
+
+-- email_verification_tokens: hashes are unique, so replace the plain index with a unique one
+DROP INDEX IF EXISTS idx_email_verification_token_hash;
+ALTER TABLE email_verification_tokens
+    ALTER COLUMN token_hash TYPE BYTEA USING decode(token_hash, 'hex');
+ALTER TABLE email_verification_tokens
+    ADD CONSTRAINT ck_email_verification_token_hash_len CHECK (octet_length(token_hash) = 32);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_email_verification_token_hash
+    ON email_verification_tokens (token_hash);
+
+-- password_reset_tokens: same as above
+DROP INDEX IF EXISTS idx_password_reset_token_hash;
+ALTER TABLE password_reset_tokens
+    ALTER COLUMN token_hash TYPE BYTEA USING decode(token_hash, 'hex');
+ALTER TABLE password_reset_tokens
+    ADD CONSTRAINT ck_password_reset_token_hash_len CHECK (octet_length(token_hash) = 32);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_password_reset_token_hash
+    ON password_reset_tokens (token_hash);
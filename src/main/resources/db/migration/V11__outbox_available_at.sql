@@ -0,0 +1,10 @@
+-- V11__outbox_available_at.sql
+-- Earliest time an outbox row may be picked up. The mail worker pushes it forward to lease a claimed batch
+-- and to back off between retries.
+ALTER TABLE outbox
+    ADD COLUMN IF NOT EXISTS available_at timestamptz NOT NULL DEFAULT now();
+
+-- claim query: pending rows of one type, oldest available first
+CREATE INDEX IF NOT EXISTS idx_outbox_pending_type_available
+    ON outbox (type, available_at)
+    WHERE processed = false;
@@ -0,0 +1,7 @@
+-- V12__refresh_tokens_live_user_index.sql
+-- "Revoke all sessions" is UPDATE ... WHERE user_id = ? AND revoked = false. Only live tokens matter there,
+-- and they are a small fraction of the table once rotation has run for a while, so index just those.
+-- idx_refresh_tokens_user_id stays: ON DELETE CASCADE from users needs every row.
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_live
+    ON public.refresh_tokens (user_id)
+    WHERE revoked = false;
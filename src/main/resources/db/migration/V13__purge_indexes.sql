@@ -0,0 +1,17 @@
+-- V13__purge_indexes.sql
+-- The purge walks each table in time order (keyset on the timestamp) and deletes in small chunks;
+-- these indexes let every chunk start where the previous one stopped instead of scanning the table.
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at
+    ON public.refresh_tokens (expires_at);
+
+CREATE INDEX IF NOT EXISTS idx_email_verification_token_expires_at
+    ON email_verification_tokens (expires_at);
+
+CREATE INDEX IF NOT EXISTS idx_password_reset_token_expires_at
+    ON password_reset_tokens (expires_at);
+
+-- only processed rows are ever purged
+CREATE INDEX IF NOT EXISTS idx_outbox_processed_at
+    ON outbox (processed_at)
+    WHERE processed = true;
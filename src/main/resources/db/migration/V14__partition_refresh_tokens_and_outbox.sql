@@ -0,0 +1,133 @@
+-- V14__partition_refresh_tokens_and_outbox.sql
+-- refresh_tokens (one row per login/refresh) and outbox (one row per event) are append-only time series.
+-- Range-partition them on their creation time so retention is DROP TABLE on an old partition instead of
+-- row deletes, and the partitions taking writes stay small.
+--
+-- Layout: weekly refresh_tokens partitions (Monday 00:00 UTC), daily outbox partitions (00:00 UTC), each named
+-- <table>_pYYYYMMDD after its UTC start day. Rows older than the current period move to one <table>_p_legacy
+-- partition (FROM MINVALUE), which is dropped like any other once it is past retention.
+-- PartitionMaintenanceService keeps partitions created ahead and drops expired ones from then on.
+--
+-- The copy runs inside this migration's transaction and locks both tables while it runs; schedule it with
+-- the deploy that ships it.
+--
+-- Primary keys must contain the partition key, so they become (id, created_at) / (id, occurred_at). ids are
+-- random UUIDs, so id alone stays unique in practice.
+
+-- helper: create one range partition, named after its UTC start day
+CREATE OR REPLACE FUNCTION pg_temp.create_range_partition(parent text, from_ts timestamptz, to_ts timestamptz)
+    RETURNS void LANGUAGE plpgsql AS $$
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                   parent || '_p' || to_char(from_ts AT TIME ZONE 'UTC', 'YYYYMMDD'), parent, from_ts, to_ts);
+END $$;
+
+-- ============================================================
+-- refresh_tokens
+-- ============================================================
+CREATE TABLE refresh_tokens_partitioned (
+    id UUID NOT NULL DEFAULT uuid_generate_v4(),
+    user_id UUID NOT NULL,
+    token_hash BYTEA NOT NULL,
+    revoked BOOLEAN NOT NULL DEFAULT FALSE,
+    expires_at TIMESTAMPTZ NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT refresh_tokens_user_id_fkey FOREIGN KEY (user_id) REFERENCES public.users(id) ON DELETE CASCADE,
+    CONSTRAINT ck_refresh_tokens_token_hash_len CHECK (octet_length(token_hash) = 32)
+) PARTITION BY RANGE (created_at);
+
+DO $$
+DECLARE
+    period_start timestamptz := date_trunc('week', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC';
+    p timestamptz;
+BEGIN
+    EXECUTE format('CREATE TABLE refresh_tokens_p_legacy PARTITION OF refresh_tokens_partitioned '
+                       || 'FOR VALUES FROM (MINVALUE) TO (%L)', period_start);
+    p := period_start;
+    WHILE p < now() + interval '4 weeks' LOOP
+        PERFORM pg_temp.create_range_partition('refresh_tokens_partitioned', p, p + interval '1 week');
+        p := p + interval '1 week';
+    END LOOP;
+END $$;
+
+INSERT INTO refresh_tokens_partitioned (id, user_id, token_hash, revoked, expires_at, created_at)
+SELECT id, user_id, token_hash, revoked, expires_at, created_at FROM public.refresh_tokens;
+
+DROP TABLE public.refresh_tokens;
+ALTER TABLE refresh_tokens_partitioned RENAME TO refresh_tokens;
+
+-- partitions were created under the temporary parent name; give them their final names
+DO $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+             WHERE i.inhparent = 'public.refresh_tokens'::regclass
+               AND c.relname LIKE 'refresh_tokens_partitioned_%' LOOP
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', r.relname,
+                       replace(r.relname, 'refresh_tokens_partitioned_', 'refresh_tokens_'));
+    END LOOP;
+END $$;
+
+ALTER TABLE refresh_tokens ADD CONSTRAINT refresh_tokens_pkey PRIMARY KEY (id, created_at);
+-- lookups are bounded by created_at (tokens older than the TTL are expired), which prunes partitions;
+-- uniqueness can't be enforced across partitions without created_at, and 32 random bytes don't collide
+CREATE INDEX idx_refresh_tokens_token_hash ON refresh_tokens (token_hash);
+CREATE INDEX idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+CREATE INDEX idx_refresh_tokens_user_live ON refresh_tokens (user_id) WHERE revoked = false;
+
+-- ============================================================
+-- outbox
+-- ============================================================
+CREATE TABLE outbox_partitioned (
+    id uuid NOT NULL DEFAULT gen_random_uuid(),
+    aggregate_type text NOT NULL,
+    aggregate_id uuid NOT NULL,
+    type text NOT NULL,
+    payload jsonb NOT NULL,
+    occurred_at timestamptz NOT NULL DEFAULT now(),
+    processed boolean NOT NULL DEFAULT false,
+    processed_at timestamptz,
+    retry_count integer NOT NULL DEFAULT 0,
+    available_at timestamptz NOT NULL DEFAULT now()
+) PARTITION BY RANGE (occurred_at);
+
+DO $$
+DECLARE
+    period_start timestamptz := date_trunc('day', now() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC';
+    p timestamptz;
+BEGIN
+    EXECUTE format('CREATE TABLE outbox_p_legacy PARTITION OF outbox_partitioned '
+                       || 'FOR VALUES FROM (MINVALUE) TO (%L)', period_start);
+    p := period_start;
+    WHILE p < now() + interval '7 days' LOOP
+        PERFORM pg_temp.create_range_partition('outbox_partitioned', p, p + interval '1 day');
+        p := p + interval '1 day';
+    END LOOP;
+END $$;
+
+INSERT INTO outbox_partitioned (id, aggregate_type, aggregate_id, type, payload, occurred_at, processed,
+                                processed_at, retry_count, available_at)
+SELECT id, aggregate_type, aggregate_id, type, payload, occurred_at, processed,
+       processed_at, retry_count, available_at
+FROM outbox;
+
+DROP TABLE outbox;
+ALTER TABLE outbox_partitioned RENAME TO outbox;
+
+DO $$
+DECLARE
+    r record;
+BEGIN
+    FOR r IN SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+             WHERE i.inhparent = 'public.outbox'::regclass
+               AND c.relname LIKE 'outbox_partitioned_%' LOOP
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', r.relname,
+                       replace(r.relname, 'outbox_partitioned_', 'outbox_'));
+    END LOOP;
+END $$;
+
+ALTER TABLE outbox ADD CONSTRAINT outbox_pkey PRIMARY KEY (id, occurred_at);
+-- pending rows can be of any age, so these can't prune; per partition they only cover unprocessed rows
+CREATE INDEX idx_outbox_pending_occurred ON outbox (occurred_at) WHERE processed = false;
+CREATE INDEX idx_outbox_pending_type_available ON outbox (type, available_at) WHERE processed = false;
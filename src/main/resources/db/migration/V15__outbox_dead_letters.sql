@@ -0,0 +1,5 @@
+-- V15__outbox_dead_letters.sql
+-- Rows that ran out of retries are closed as processed with failed = true: they leave the pending indexes and
+-- expire with their partition like delivered rows, instead of pinning it as a pending row forever.
+ALTER TABLE outbox
+    ADD COLUMN IF NOT EXISTS failed boolean NOT NULL DEFAULT false;
@@ -0,0 +1,5 @@
+-- V9__add_users_security_version.sql
+-- Per-user security version embedded in access tokens ('sv' claim).
+-- Bumping it invalidates every access token issued with an older version.
+ALTER TABLE public.users
+    ADD COLUMN IF NOT EXISTS security_version INT NOT NULL DEFAULT 0;
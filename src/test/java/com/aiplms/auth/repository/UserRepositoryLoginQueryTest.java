@@ -0,0 +1,104 @@
+package com.aiplms.auth.repository;
+
+import com.aiplms.auth.entity.User;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The login lookup must be a single statement that PostgreSQL resolves through the LOWER() unique indexes.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.aiplms.auth.repository.UserRepositoryLoginQueryTest$CapturingInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserRepositoryLoginQueryTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // enough rows that a sequential scan is clearly the worse plan
+        jdbcTemplate.update("""
+                INSERT INTO users (id, username, email, password)
+                SELECT gen_random_uuid(), 'user' || i, 'user' || i || '@example.com', 'x'
+                FROM generate_series(1, 20000) AS i
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO user_roles (user_id, role_id)
+                SELECT u.id, r.id FROM users u, roles r WHERE u.username = 'user42' AND r.name = 'ROLE_USER'
+                """);
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE user_roles");
+        CapturingInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void resolvesUsernameOrEmailInOneQueryWithRoles() {
+        Optional<User> byUsername = userRepository.findByUsernameOrEmail("USER42");
+        Optional<User> byEmail = userRepository.findByUsernameOrEmail("User42@Example.com");
+
+        assertThat(byUsername).isPresent();
+        assertThat(byEmail).map(User::getId).isEqualTo(byUsername.map(User::getId));
+        assertThat(byUsername.get().getRoles()).extracting("name").containsExactly("ROLE_USER");
+        assertThat(CapturingInspector.STATEMENTS).hasSize(2);
+    }
+
+    @Test
+    void loginQueryUsesLowerIndexes() {
+        userRepository.findByUsernameOrEmail("user42@example.com");
+        assertThat(CapturingInspector.STATEMENTS).hasSize(1);
+
+        String sql = CapturingInspector.STATEMENTS.get(0);
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class,
+                "user42@example.com", "user42@example.com");
+        String planText = String.join("\n", plan);
+
+        assertThat(planText).contains("ux_users_username").contains("ux_users_email");
+        assertThat(planText).doesNotContain("Seq Scan on users");
+    }
+
+    /**
+     * Records the SQL Hibernate sends so the test can EXPLAIN exactly that statement.
+     */
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.contains("users")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.aiplms.auth.security;
+
+import com.aiplms.auth.config.AuthProperties;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The fast codec must stay interchangeable with the Nimbus path: tokens go both ways, anything it can't
+ * handle returns null (Nimbus fallback), and anything forged or expired is rejected.
+ */
+class JwtCodecTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+    private static final UUID USER_ID = UUID.fromString("6f1c2a3e-8d4b-4c5a-9e7f-0a1b2c3d4e5f");
+
+    private JwtKeyManager keyManager;
+    private JwtCodec codec;
+    private JwtService jwtService;
+
+    private void init(String algorithm) {
+        AuthProperties props = new AuthProperties();
+        props.getJwt().setAlgorithm(algorithm);
+        props.getJwt().setSecret(SECRET);
+        props.getJwt().setFastCodecEnabled(false);
+        keyManager = new JwtKeyManager(props);
+        codec = new JwtCodec(keyManager);
+        jwtService = new JwtService(keyManager, props, codec);
+    }
+
+    private String encode(long issuedAtMillis, long expiresAtEpochSecond) {
+        return codec.encode("jti-1", USER_ID, "alice", "alice@example.com", List.of("ROLE_USER", "ROLE_ADMIN"),
+                3L, issuedAtMillis, expiresAtEpochSecond);
+    }
+
+    private String sign(JWTClaimsSet claims) throws Exception {
+        SignedJWT jwt = new SignedJWT(keyManager.getSigningHeader(), claims);
+        jwt.sign(keyManager.getSigner());
+        return jwt.serialize();
+    }
+
+    private JWTClaimsSet.Builder fullClaims(Instant now) {
+        return new JWTClaimsSet.Builder()
+                .jwtID("jti-2")
+                .subject(USER_ID.toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(900)))
+                .claim("id", USER_ID.toString())
+                .claim("username", "alice")
+                .claim("email", "alice@example.com")
+                .claim("roles", List.of("ROLE_USER"))
+                .claim("sv", 1L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"HS256", "ES256"})
+    void encodedTokenValidatesWithNimbus(String algorithm) {
+        init(algorithm);
+        long now = System.currentTimeMillis();
+        String token = encode(now, now / 1000 + 900);
+
+        JwtService.JwtClaims claims = jwtService.parseAndValidate(token);
+
+        assertThat(claims.getClaimAsString("jti")).isEqualTo("jti-1");
+        assertThat(claims.getClaimAsString("sub")).isEqualTo(USER_ID.toString());
+        assertThat(claims.getClaimAsString("id")).isEqualTo(USER_ID.toString());
+        assertThat(claims.getClaimAsString("username")).isEqualTo("alice");
+        assertThat(claims.getClaimAsString("email")).isEqualTo("alice@example.com");
+        assertThat(claims.getClaimAsStringList("roles")).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(claims.getClaimAsLong("sv")).isEqualTo(3L);
+        assertThat(claims.getClaimAsLong("iat_ms")).isEqualTo(now);
+        assertThat(claims.getIssuedAt()).isEqualTo(Instant.ofEpochSecond(now / 1000));
+        assertThat(claims.getExpiresAt()).isEqualTo(Instant.ofEpochSecond(now / 1000 + 900));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"HS256", "ES256"})
+    void nimbusTokenDecodes(String algorithm) throws Exception {
+        init(algorithm);
+        Instant now = Instant.now();
+        String token = sign(fullClaims(now).claim("iat_ms", now.toEpochMilli()).build());
+
+        ValidatedToken decoded = codec.decode(token, now.toEpochMilli());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getJti()).isEqualTo("jti-2");
+        assertThat(decoded.getUserId()).isEqualTo(USER_ID);
+        assertThat(decoded.getUsername()).isEqualTo("alice");
+        assertThat(decoded.getSecurityVersion()).isEqualTo(1L);
+        assertThat(decoded.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+        assertThat(decoded.getIssuedAt()).isEqualTo(Instant.ofEpochMilli(now.toEpochMilli()));
+        assertThat(decoded.getExpiresAt()).isEqualTo(Instant.ofEpochSecond(now.plusSeconds(900).getEpochSecond()));
+        assertThat(decoded.getClaims().getClaimAsString("email")).isEqualTo("alice@example.com");
+    }
+
+    @Test
+    void issuedAtFallsBackToSecondsWithoutMillisClaim() throws Exception {
+        init("HS256");
+        Instant now = Instant.now();
+        String token = sign(fullClaims(now).build());
+
+        ValidatedToken decoded = codec.decode(token, now.toEpochMilli());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getIssuedAt()).isEqualTo(Instant.ofEpochSecond(now.getEpochSecond()));
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        init("HS256");
+        long now = System.currentTimeMillis();
+        String[] parts = encode(now, now / 1000 + 900).split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                .replace("ROLE_USER", "ROLE_ROOT");
+        String forged = parts[0] + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + "." + parts[2];
+
+        assertThatThrownBy(() -> codec.decode(forged, now))
+                .isInstanceOf(JwtService.JwtValidationException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"HS256", "ES256"})
+    void tamperedSignatureIsRejected(String algorithm) {
+        init(algorithm);
+        long now = System.currentTimeMillis();
+        String token = encode(now, now / 1000 + 900);
+        int sig = token.lastIndexOf('.') + 1;
+        // the first character carries six full signature bits, unlike the last one
+        char flipped = token.charAt(sig) == 'A' ? 'B' : 'A';
+        String forged = token.substring(0, sig) + flipped + token.substring(sig + 1);
+
+        assertThatThrownBy(() -> codec.decode(forged, now))
+                .isInstanceOf(JwtService.JwtValidationException.class);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        init("HS256");
+        long now = System.currentTimeMillis();
+        String token = encode(now - 1_000_000, now / 1000 - 60);
+
+        assertThatThrownBy(() -> codec.decode(token, now))
+                .isInstanceOf(JwtService.JwtValidationException.class)
+                .hasMessageContaining("expired");
+    }
+
+    @Test
+    void unknownHeaderFallsBack() throws Exception {
+        init("HS256");
+        Instant now = Instant.now();
+        JWTClaimsSet claims = fullClaims(now).build();
+        byte[] secret = SECRET.getBytes(StandardCharsets.UTF_8);
+
+        SignedJWT withKid = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.HS256).type(JOSEObjectType.JWT).keyID("unknown").build(), claims);
+        withKid.sign(new MACSigner(secret));
+        SignedJWT otherAlg = new SignedJWT(
+                new JWSHeader.Builder(JWSAlgorithm.HS384).type(JOSEObjectType.JWT).build(), claims);
+        // HS384 needs a longer key; the header alone has to send it to Nimbus
+        otherAlg.sign(new MACSigner((SECRET + SECRET).getBytes(StandardCharsets.UTF_8)));
+        SignedJWT noTyp = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.HS256).build(), claims);
+        noTyp.sign(new MACSigner(secret));
+
+        assertThat(codec.decode(withKid.serialize(), now.toEpochMilli())).isNull();
+        assertThat(codec.decode(otherAlg.serialize(), now.toEpochMilli())).isNull();
+        assertThat(codec.decode(noTyp.serialize(), now.toEpochMilli())).isNull();
+    }
+
+    @Test
+    void missingOrExtraClaimsFallBack() throws Exception {
+        init("HS256");
+        Instant now = Instant.now();
+        long millis = now.toEpochMilli();
+
+        assertThat(codec.decode(sign(fullClaims(now).jwtID(null).build()), millis)).isNull();
+        assertThat(codec.decode(sign(fullClaims(now).claim("id", null).build()), millis)).isNull();
+        assertThat(codec.decode(sign(fullClaims(now).issueTime(null).build()), millis)).isNull();
+        assertThat(codec.decode(sign(fullClaims(now).claim("scope", "admin").build()), millis)).isNull();
+    }
+
+    @Test
+    void malformedTokenFallsBack() {
+        init("HS256");
+        long now = System.currentTimeMillis();
+
+        assertThat(codec.decode("not-a-jwt", now)).isNull();
+        assertThat(codec.decode("a.b.c.d", now)).isNull();
+    }
+}